@@ -0,0 +1,114 @@
+package dev.hvsawal.shortener.bench;
+
+import dev.hvsawal.shortener.configuration.CodeV2Props;
+import dev.hvsawal.shortener.core.Base62;
+import dev.hvsawal.shortener.core.CodeCodec;
+import dev.hvsawal.shortener.core.Feistel64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of the id <-> code path used by every create and redirect.
+ * Inputs rotate through a small pool so the JIT can't constant-fold them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodecBenchmark {
+
+    private static final int POOL = 1024; // power of two
+    private static final String KEY = "bench-key-0123456789abcdef-very-long";
+
+    private Feistel64 feistel;
+    private CodeCodec codec;
+    private CodeCodec v1Only;
+
+    private long[] ids;
+    private long[] scrambled;
+    private String[] base62;
+    private String[] v1Codes;
+    private String[] v2Codes;
+    private final char[] scratch = new char[Base62.MAX_LENGTH];
+    private int i;
+
+    @Setup
+    public void setup() {
+        feistel = new Feistel64(KEY, 5);
+        // every id below startId encodes as V1, at/after it as V2
+        codec = new CodeCodec(KEY, 5, 6, new CodeV2Props(true, "_", 5, 10, 1L << 40, KEY));
+        v1Only = new CodeCodec(KEY, 5, 6);
+
+        SplittableRandom rnd = new SplittableRandom(42);
+        ids = new long[POOL];
+        scrambled = new long[POOL];
+        base62 = new String[POOL];
+        v1Codes = new String[POOL];
+        v2Codes = new String[POOL];
+        for (int k = 0; k < POOL; k++) {
+            long id = (1L << 40) + rnd.nextLong(1L << 32);
+            ids[k] = id;
+            scrambled[k] = feistel.scramble(id);
+            base62[k] = Base62.encode(scrambled[k]);
+            v1Codes[k] = v1Only.encodeId(id);
+            v2Codes[k] = codec.encodeId(id);
+        }
+    }
+
+    private int next() {
+        return i = (i + 1) & (POOL - 1);
+    }
+
+    @Benchmark
+    public long feistelScramble() {
+        return feistel.scramble(ids[next()]);
+    }
+
+    @Benchmark
+    public long feistelUnscramble() {
+        return feistel.unscramble(scrambled[next()]);
+    }
+
+    @Benchmark
+    public String base62Encode() {
+        return Base62.encode(scrambled[next()]);
+    }
+
+    @Benchmark
+    public int base62EncodeInto() {
+        int n = Base62.encodeInto(scrambled[next()], scratch, 0);
+        return n + scratch[0];
+    }
+
+    @Benchmark
+    public long base62Decode() {
+        return Base62.decode(base62[next()]);
+    }
+
+    @Benchmark
+    public String codecEncodeV1() {
+        return v1Only.encodeId(ids[next()]);
+    }
+
+    @Benchmark
+    public long codecDecodeV1() {
+        return codec.decodeToId(v1Codes[next()]);
+    }
+
+    @Benchmark
+    public String codecEncodeV2() {
+        return codec.encodeId(ids[next()]);
+    }
+
+    @Benchmark
+    public long codecDecodeV2() {
+        return codec.decodeToId(v2Codes[next()]);
+    }
+}
@@ -0,0 +1,73 @@
+package dev.hvsawal.shortener.bench;
+
+import dev.hvsawal.shortener.core.UrlHash;
+import dev.hvsawal.shortener.core.UrlNormalizer;
+import dev.hvsawal.shortener.core.UrlValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call cost of the create path before the DB: normalize -> validate -> hash.
+ * The input mix is weighted towards the shapes the marketing pipeline sends.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UrlPipelineBenchmark {
+
+    private static final String[] INPUTS = {
+            "https://example.com/a?b=1",
+            "https://www.example.co.uk/products/shoes/running?utm_source=newsletter&utm_medium=email&utm_campaign=spring",
+            "HTTP://Example.COM:8080/Path/To/Page#section",
+            "https://bücher.example/katalog?q=java",
+            "http://192.168.10.20/status",
+            "https://[2001:db8::1]/v6",
+            "https://docs.example.org/very/long/path/" + "segment/".repeat(40) + "end?x=" + "y".repeat(200),
+            "  https://example.com/trimmed  ",
+    };
+
+    private String[] normalized;
+    private URI[] uris;
+    private int i;
+
+    @Setup
+    public void setup() {
+        normalized = new String[INPUTS.length];
+        uris = new URI[INPUTS.length];
+        for (int k = 0; k < INPUTS.length; k++) {
+            normalized[k] = UrlNormalizer.normalize(INPUTS[k]);
+            uris[k] = URI.create(normalized[k]);
+        }
+    }
+
+    private int next() {
+        int k = i + 1;
+        if (k == INPUTS.length) k = 0;
+        return i = k;
+    }
+
+    @Benchmark
+    public String normalize() {
+        return UrlNormalizer.normalize(INPUTS[next()]);
+    }
+
+    @Benchmark
+    public URI validateStrict() {
+        URI uri = uris[next()];
+        UrlValidator.validateStrict(uri, true);
+        return uri;
+    }
+
+    @Benchmark
+    public byte[] sha256() {
+        return UrlHash.sha256(normalized[next()], false);
+    }
+}
@@ -0,0 +1,78 @@
+package dev.hvsawal.shortener.analytics;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.repository.ClickBucketRepository;
+import dev.hvsawal.shortener.support.resilience.AnalyticsBulkhead;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Keeps click_bucket's monthly partitions ahead of the clock and drops the ones past retention.
+ * Runs at startup and then every few hours; both steps are idempotent, so several nodes doing it
+ * concurrently is harmless. Rows that arrive without a partition land in the default one, and are
+ * moved into their month's partition when it gets created (V7), e.g. after maintenance was down
+ * across a month boundary.
+ *
+ * <p>Like every analytics writer it runs on the analytics pool under an {@link AnalyticsBulkhead}
+ * background permit, so it never takes the connection a click flush is waiting for. Without a
+ * spare permit, or after a failure, it tries again a minute later.
+ */
+@Component
+public class ClickBucketPartitions {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickBucketPartitions.class);
+
+    private static final long RUN_EVERY_MS = Duration.ofHours(6).toMillis();
+
+    private final ClickBucketRepository buckets;
+    private final AnalyticsBulkhead bulkhead;
+    private final boolean enabled;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private long nextRunAt; // epoch millis; only touched by the scheduler thread
+
+    public ClickBucketPartitions(ClickBucketRepository buckets, AnalyticsBulkhead bulkhead,
+                                 ShortenerConfigurationProperties props) {
+        var b = props.clickcount().buckets();
+        this.buckets = buckets;
+        this.bulkhead = bulkhead;
+        this.enabled = b != null && b.enabled();
+        this.monthsAhead = b != null ? Math.max(1, b.monthsAhead()) : 1;
+        this.retentionMonths = b != null ? b.retentionMonths() : 0;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "PT1M")
+    public void maintainIfDue() {
+        if (!enabled || System.currentTimeMillis() < nextRunAt) return;
+        try (var permit = bulkhead.tryAcquireBackground()) {
+            if (!permit.acquired()) return;
+            if (maintain()) nextRunAt = System.currentTimeMillis() + RUN_EVERY_MS;
+        }
+    }
+
+    /** @return whether both steps succeeded */
+    boolean maintain() {
+        try {
+            long moved = buckets.ensurePartitions(monthsAhead);
+            if (moved > 0) {
+                log.warn("Moved {} click_bucket row(s) from the default partition into newly created monthly ones; "
+                        + "partition maintenance had fallen behind the clock", moved);
+            }
+            if (retentionMonths > 0) {
+                OffsetDateTime cutoff = OffsetDateTime.now(ZoneOffset.UTC).minusMonths(retentionMonths);
+                int dropped = buckets.dropPartitionsBefore(cutoff);
+                if (dropped > 0) log.info("Dropped {} click_bucket partition(s) older than {}", dropped, cutoff);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("click_bucket partition maintenance failed; retrying in a minute. {}", e.toString());
+            return false;
+        }
+    }
+}
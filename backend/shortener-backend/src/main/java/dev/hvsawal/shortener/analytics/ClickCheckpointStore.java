@@ -0,0 +1,55 @@
+package dev.hvsawal.shortener.analytics;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * This node's row in click_journal_checkpoint: the last (epoch, id) whose clicks are committed.
+ * {@link #save} is meant to run inside the transaction that applies the chunk ending at that id.
+ */
+final class ClickCheckpointStore {
+
+    private static final String SELECT =
+            "select epoch, applied_through_id from click_journal_checkpoint where node_id = ?";
+
+    private static final String UPSERT = """
+            insert into click_journal_checkpoint (node_id, epoch, applied_through_id) values (?, ?, ?)
+            on conflict (node_id) do update
+            set epoch = excluded.epoch, applied_through_id = excluded.applied_through_id, updated_at = now()""";
+
+    private final JdbcTemplate jdbc;
+    private final String nodeId;
+
+    ClickCheckpointStore(JdbcTemplate jdbc, String nodeId) {
+        this.jdbc = jdbc;
+        this.nodeId = nodeId;
+    }
+
+    /** @return the stored checkpoint, or (0, 0) if this node never committed anything */
+    Checkpoint load() {
+        return jdbc.query(SELECT, rs -> rs.next() ? new Checkpoint(rs.getLong(1), rs.getLong(2)) : new Checkpoint(0, 0),
+                nodeId);
+    }
+
+    void save(Checkpoint cp) {
+        jdbc.update(UPSERT, nodeId, cp.epoch(), cp.appliedThroughId());
+    }
+
+    record Checkpoint(long epoch, long appliedThroughId) {
+
+        /** {@link #firstUnapplied} for an epoch older than the checkpoint's. */
+        static final int BEHIND = -1;
+
+        /**
+         * Index of the first of {@code ids[0..n)} (ascending, from {@code epoch}) not yet applied,
+         * or {@link #BEHIND} if {@code epoch} is older than the checkpoint: a single node never gets
+         * there, so it means a clock or node-id problem and nothing can be said about those clicks.
+         */
+        int firstUnapplied(long epoch, long[] ids, int n) {
+            if (epoch < this.epoch) return BEHIND;
+            if (epoch > this.epoch) return 0;
+            int i = 0;
+            while (i < n && ids[i] <= appliedThroughId) i++;
+            return i;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package dev.hvsawal.shortener.analytics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-capacity id → click count buffer: primitive open addressing (no boxing, no per-id
+ * objects), split into {@value #STRIPES} independently probed stripes, and double-buffered so
+ * the flusher can take a consistent snapshot without stopping writers or losing increments.
+ *
+ * <p>Handoff: a writer registers in its stripe's {@code writers} count, re-reads the active
+ * table and only then increments; if the table was swapped in between it backs out and
+ * retries on the new one. The drainer swaps the active table and then waits for every
+ * stripe's {@code writers} to reach zero. Both sides use volatile/atomic accesses, so either the
+ * writer sees the swap or the drainer sees the writer, never neither.
+ *
+ * <p>Each table carries an epoch number that goes up by one per drain; an {@link EpochSink}
+ * passed to {@link #increment(long, EpochSink)} is told the epoch a click was counted in, from
+ * inside the writer's registration, so whatever it records for epoch {@code e} is complete once
+ * {@code e} has been drained. It is also offered the clicks a full stripe turned away, under the
+ * same guarantee, and may keep them elsewhere.
+ *
+ * <p>Memory is fixed at construction: two tables of {@code slots} (a power of two holding
+ * {@code maxEntries} at ≤ 75% load) × 16 bytes. Ids must be positive (0 marks an empty slot).
+ * {@link #drainTo} must not be called concurrently with itself.
+ */
+final class ClickCounterTable {
+
+    static final int STRIPES = 64;
+
+    private final Table[] tables;
+    private volatile int active;
+    private final int slots;
+
+    ClickCounterTable(int maxEntries) {
+        this(maxEntries, 1);
+    }
+
+    ClickCounterTable(int maxEntries, long firstEpoch) {
+        long wanted = Math.max(STRIPES * 16L, (long) Math.ceil(Math.max(1, maxEntries) / 0.75));
+        long slots = Long.highestOneBit(wanted - 1) << 1;
+        if (slots > (1 << 30)) throw new IllegalArgumentException("click table too large: " + maxEntries);
+        int perStripe = (int) (slots / STRIPES);
+        this.tables = new Table[]{new Table(perStripe), new Table(perStripe)};
+        this.tables[0].epoch = firstEpoch;
+        this.slots = (int) slots;
+    }
+
+    /** Told, from inside the writer's registration, which epoch a click was counted in. */
+    interface EpochSink {
+        void counted(long epoch, long id);
+
+        /**
+         * A click its stripe had no room for, in {@code epoch}. It is not in the table's counts.
+         *
+         * @return whether the sink kept it
+         */
+        default boolean overflow(long epoch, long id) {
+            return false;
+        }
+    }
+
+    /** Slots per table: an upper bound on the ids one drain returns. */
+    int slots() {
+        return slots;
+    }
+
+    /** Distinct ids in the table being counted into (a racy sum over stripes, fine for triggers and gauges). */
+    int size() {
+        int n = 0;
+        for (Stripe stripe : tables[active].stripes) n += Math.min(stripe.used.get(), stripe.limit);
+        return n;
+    }
+
+    /** Epoch currently being counted into; the one the next {@link #drainTo} returns. */
+    long activeEpoch() {
+        return tables[active].epoch;
+    }
+
+    /** @return {@code false} if the id's stripe is full, in which case nothing was counted */
+    boolean increment(long id) {
+        return increment(id, null);
+    }
+
+    /**
+     * @param sink told about the click if it was counted, offered it if its stripe is full (may be {@code null})
+     * @return {@code false} if the id's stripe is full and the sink didn't keep it, in which case the
+     *         click is lost
+     */
+    boolean increment(long id, EpochSink sink) {
+        if (id <= 0) return false;
+        long h = mix(id);
+        int s = stripe(h);
+        while (true) {
+            Table t = tables[active];
+            Stripe stripe = t.stripes[s];
+            stripe.writers.incrementAndGet();
+            try {
+                if (t != tables[active]) continue; // swapped under us: count in the new table
+                if (!stripe.add(id, (int) (h >>> 32))) return sink != null && sink.overflow(t.epoch, id);
+                if (sink != null) sink.counted(t.epoch, id);
+                return true;
+            } finally {
+                stripe.writers.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Moves everything counted so far into {@code ids}/{@code counts} (sorted by id) and starts
+     * counting into a fresh table. Arrays must hold at least {@link #slots()} entries.
+     *
+     * @return number of ids written
+     */
+    int drainTo(long[] ids, long[] counts) {
+        Table old = tables[active];
+        tables[active ^ 1].epoch = old.epoch + 1;
+        active ^= 1;
+        for (Stripe stripe : old.stripes) {
+            while (stripe.writers.get() != 0) Thread.onSpinWait();
+        }
+
+        int n = 0;
+        for (Stripe stripe : old.stripes) n = stripe.collectKeys(ids, n);
+        Arrays.sort(ids, 0, n);
+        for (int i = 0; i < n; i++) {
+            long h = mix(ids[i]);
+            counts[i] = old.stripes[stripe(h)].get(ids[i], (int) (h >>> 32));
+        }
+        for (Stripe stripe : old.stripes) stripe.clear();
+        return n;
+    }
+
+    /** The stripe {@code id} is counted in; ids of one stripe compete for its slots. */
+    static int stripeOf(long id) {
+        return stripe(mix(id));
+    }
+
+    private static int stripe(long h) {
+        return (int) h & (STRIPES - 1);
+    }
+
+    /** Stafford variant 13 of the MurmurHash3 finalizer; ids are sequential, so spread them. */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Table {
+        final Stripe[] stripes = new Stripe[STRIPES];
+        volatile long epoch;
+
+        Table(int slotsPerStripe) {
+            for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe(slotsPerStripe);
+        }
+    }
+
+    private static final class Stripe {
+        final AtomicInteger writers = new AtomicInteger();
+        final AtomicInteger used = new AtomicInteger();
+        final AtomicLongArray keys;
+        final AtomicLongArray counts;
+        final int mask;
+        final int limit;
+
+        Stripe(int slots) {
+            this.keys = new AtomicLongArray(slots);
+            this.counts = new AtomicLongArray(slots);
+            this.mask = slots - 1;
+            this.limit = slots / 4 * 3;
+        }
+
+        boolean add(long id, int h) {
+            for (int probe = 0, i = h & mask; probe <= mask; probe++, i = (i + 1) & mask) {
+                long k = keys.get(i);
+                if (k == 0) {
+                    if (used.get() >= limit) return false;
+                    if (keys.compareAndSet(i, 0, id)) {
+                        used.incrementAndGet();
+                        counts.getAndIncrement(i);
+                        return true;
+                    }
+                    k = keys.get(i); // lost the slot; it may have gone to this same id
+                }
+                if (k == id) {
+                    counts.getAndIncrement(i);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        long get(long id, int h) {
+            for (int probe = 0, i = h & mask; probe <= mask; probe++, i = (i + 1) & mask) {
+                long k = keys.get(i);
+                if (k == id) return counts.get(i);
+                if (k == 0) return 0;
+            }
+            return 0;
+        }
+
+        int collectKeys(long[] out, int n) {
+            for (int i = 0; i <= mask; i++) {
+                long k = keys.get(i);
+                if (k != 0) out[n++] = k;
+            }
+            return n;
+        }
+
+        void clear() {
+            for (int i = 0; i <= mask; i++) {
+                if (keys.get(i) != 0) {
+                    keys.set(i, 0);
+                    counts.set(i, 0);
+                }
+            }
+            used.set(0);
+        }
+    }
+}
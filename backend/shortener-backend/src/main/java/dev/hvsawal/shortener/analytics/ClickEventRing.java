@@ -0,0 +1,201 @@
+package dev.hvsawal.shortener.analytics;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated multi-producer ring of mutable click slots (Disruptor-style), drained by a fixed
+ * set of consumer threads.
+ *
+ * <p>Producers claim a sequence with one CAS on {@code cursor}, fill the slot in place and
+ * publish it with a release store of the sequence's lap into {@code published}. Consumer
+ * {@code k} of {@code C} owns the sequences {@code ≡ k (mod C)} and handles them in order, so no
+ * two consumers touch the same slot and no consumer coordination is needed. A slot can be
+ * reused once every consumer has moved past it: the producer gate is
+ * {@code min_k(done_k + C)}, cached between checks.
+ *
+ * <p>{@link #tryPublish} never waits; what to do when the ring is full (drop, sample, block) is
+ * the caller's choice. Idle consumers spin briefly, then park for increasingly long (up to
+ * {@code MAX_IDLE_PARK_NANOS}), so an idle ring costs a few hundred wakeups a second, not tens of
+ * thousands; the first event after a quiet spell waits at most that long.
+ *
+ * <p>{@link #close} sets a flag bit in {@code cursor}, so no sequence can be claimed after it and
+ * the consumers know exactly where to stop; {@link #tryPublish} then refuses, see {@link #isClosed}.
+ */
+final class ClickEventRing {
+
+    /** Does the aggregation work for one event; runs on a consumer thread. */
+    interface Handler {
+        void onClick(long id, String clientIp, String userAgent, int weight);
+    }
+
+    private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int PAD = 16; // longs per cache line pair, keeps consumer cursors apart
+    private static final int IDLE_SPINS = 100;
+    private static final long MIN_IDLE_PARK_NANOS = 50_000;
+    private static final long MAX_IDLE_PARK_NANOS = 5_000_000;
+    private static final long CLOSED = 1L << 62; // in cursor; sequences never get near it
+
+    private final int mask;
+    private final int shift;
+    private final Slot[] slots;
+    private final int[] published;
+    private final int consumers;
+
+    private final AtomicLong cursor = new AtomicLong(); // next sequence to claim, | CLOSED once closed
+    private final AtomicLongArray done; // done[k * PAD]: last sequence consumer k has finished
+    private volatile long gateCache = -1;
+
+    private final Thread[] threads;
+
+    ClickEventRing(int capacity, int consumers, Handler handler, String threadName) {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        if (consumers < 1 || consumers > capacity) throw new IllegalArgumentException("bad consumer count: " + consumers);
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfTrailingZeros(capacity);
+        this.slots = new Slot[capacity];
+        this.published = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            published[i] = -1;
+        }
+        this.consumers = consumers;
+        this.done = new AtomicLongArray(consumers * PAD);
+        for (int k = 0; k < consumers; k++) done.set(k * PAD, k - consumers); // nothing consumed yet
+
+        this.threads = new Thread[consumers];
+        for (int k = 0; k < consumers; k++) {
+            int id = k;
+            threads[k] = Thread.ofPlatform().daemon().name(threadName + "-" + k).start(() -> consume(id, handler));
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /** @return {@code false} if the ring is full or closed, in which case nothing was published */
+    boolean tryPublish(long id, String clientIp, String userAgent, int weight) {
+        long seq;
+        while (true) {
+            seq = cursor.get();
+            if ((seq & CLOSED) != 0) return false;
+            long wrap = seq - slots.length;
+            if (wrap > gateCache) {
+                long gate = gate();
+                gateCache = gate;
+                if (wrap > gate) return false;
+            }
+            if (cursor.compareAndSet(seq, seq + 1)) break;
+        }
+
+        Slot s = slots[(int) seq & mask];
+        s.id = id;
+        s.clientIp = clientIp;
+        s.userAgent = userAgent;
+        s.weight = weight;
+        s.publishedAtNanos = System.nanoTime();
+        PUBLISHED.setRelease(published, (int) seq & mask, (int) (seq >>> shift));
+        return true;
+    }
+
+    /** Claimed but not yet consumed events (approximate while producers and consumers run). */
+    long occupancy() {
+        return Math.max(0, claimed() - gate());
+    }
+
+    /** Age of the oldest published event no consumer has finished, 0 if none. */
+    long lagNanos() {
+        long oldest = 0;
+        long now = System.nanoTime();
+        long claimed = claimed();
+        for (int k = 0; k < consumers; k++) {
+            long next = done.get(k * PAD) + consumers;
+            if (next > claimed) continue;
+            int i = (int) next & mask;
+            if ((int) PUBLISHED.getAcquire(published, i) != (int) (next >>> shift)) continue;
+            oldest = Math.max(oldest, now - slots[i].publishedAtNanos);
+        }
+        return oldest;
+    }
+
+    /**
+     * Refuses further publishes and stops the consumers once every event claimed before that has
+     * been handled.
+     */
+    void close() {
+        long c;
+        do {
+            c = cursor.get();
+        } while ((c & CLOSED) == 0 && !cursor.compareAndSet(c, c | CLOSED));
+        for (Thread t : threads) {
+            LockSupport.unpark(t);
+            try {
+                t.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /** Once true, {@link #tryPublish} always refuses: events must be handled some other way. */
+    boolean isClosed() {
+        return (cursor.get() & CLOSED) != 0;
+    }
+
+    /** Last sequence claimed by a producer, -1 if none. */
+    private long claimed() {
+        return (cursor.get() & ~CLOSED) - 1;
+    }
+
+    /** Last sequence every consumer has finished: all slots up to it may be reused. */
+    private long gate() {
+        long min = Long.MAX_VALUE;
+        for (int k = 0; k < consumers; k++) min = Math.min(min, done.get(k * PAD) + consumers);
+        return min - 1;
+    }
+
+    private void consume(int k, Handler handler) {
+        long next = k;
+        int idle = 0;
+        long park = MIN_IDLE_PARK_NANOS;
+        while (true) {
+            int i = (int) next & mask;
+            if ((int) PUBLISHED.getAcquire(published, i) == (int) (next >>> shift)) {
+                Slot s = slots[i];
+                try {
+                    handler.onClick(s.id, s.clientIp, s.userAgent, s.weight);
+                } catch (RuntimeException ignored) {
+                    // one bad event must not stop the consumer; handlers count their own failures
+                }
+                s.clientIp = null;
+                s.userAgent = null;
+                done.lazySet(k * PAD, next);
+                next += consumers;
+                idle = 0;
+                park = MIN_IDLE_PARK_NANOS;
+                continue;
+            }
+            long c = cursor.get();
+            if ((c & CLOSED) != 0 && next >= (c & ~CLOSED)) return;
+            if (++idle < IDLE_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(park);
+                park = Math.min(park * 2, MAX_IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private static final class Slot {
+        long id;
+        String clientIp;
+        String userAgent;
+        int weight;
+        long publishedAtNanos;
+    }
+}
@@ -0,0 +1,145 @@
+package dev.hvsawal.shortener.analytics;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Entry point for click analytics on the redirect path: hands each click to a
+ * {@link ClickEventRing} and returns, so the request thread pays one CAS and a few stores no
+ * matter how much {@link ClickTracker} and {@link VisitorSketches} do with it.
+ *
+ * <p>When the ring is full, {@code shortener.clickcount.ring.overflow} decides:
+ * <ul>
+ *   <li>{@code DROP}: the click is not recorded.</li>
+ *   <li>{@code SAMPLE}: above 3/4 occupancy only one click in {@code sample-rate} is published,
+ *       counted {@code sample-rate} times, so click counts stay unbiased on average; a full ring
+ *       still drops.</li>
+ *   <li>{@code BLOCK}: the request thread waits for a slot, up to {@code max-block-ms}, then drops.</li>
+ * </ul>
+ * With the ring disabled, or once it is closed at shutdown, clicks are handled on the request
+ * thread as before.
+ */
+@Component
+public class ClickEvents {
+
+    public enum Overflow { DROP, SAMPLE, BLOCK }
+
+    private final ClickTracker tracker;
+    private final VisitorSketches visitors;
+
+    private final ClickEventRing ring; // null: handle on the caller's thread
+    private final Overflow overflow;
+    private final int sampleRate;
+    private final long highWater;
+    private final long maxBlockNanos;
+
+    private final Counter dropped;
+    private final Counter sampledOut;
+    private final Counter blocked;
+
+    public ClickEvents(ShortenerConfigurationProperties props,
+                       ClickTracker tracker,
+                       VisitorSketches visitors,
+                       MeterRegistry registry) {
+        this.tracker = tracker;
+        this.visitors = visitors;
+
+        var r = props.clickcount().ring();
+        boolean enabled = props.clickcount().enabled() && r != null && r.enabled();
+        this.overflow = r != null && r.overflow() != null ? parseOverflow(r.overflow()) : Overflow.DROP;
+        this.sampleRate = r != null ? Math.max(1, r.sampleRate()) : 1;
+        this.maxBlockNanos = r != null ? TimeUnit.MILLISECONDS.toNanos(Math.max(0, r.maxBlockMs())) : 0;
+        this.ring = enabled
+                ? new ClickEventRing(Integer.highestOneBit(Math.max(2, r.capacity())), Math.max(1, r.consumers()),
+                        this::handle, "click-consumer")
+                : null;
+        this.highWater = ring != null ? ring.capacity() / 4L * 3 : Long.MAX_VALUE;
+
+        this.dropped = Counter.builder("shortener_click_ring_dropped_total")
+                .description("Clicks not recorded because the event ring was full")
+                .register(registry);
+        this.sampledOut = Counter.builder("shortener_click_ring_sampled_out_total")
+                .description("Clicks skipped by overload sampling (the published ones carry their weight)")
+                .register(registry);
+        this.blocked = Counter.builder("shortener_click_ring_blocked_total")
+                .description("Clicks whose request thread had to wait for a free slot")
+                .register(registry);
+        if (ring != null) {
+            Gauge.builder("shortener_click_ring_occupancy", ring, ClickEventRing::occupancy)
+                    .description("Events published but not yet consumed")
+                    .register(registry);
+            Gauge.builder("shortener_click_ring_lag_seconds", ring, rg -> rg.lagNanos() / 1e9)
+                    .description("Age of the oldest event not yet consumed")
+                    .register(registry);
+        }
+    }
+
+    private static Overflow parseOverflow(String value) {
+        try {
+            return Overflow.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("shortener.clickcount.ring.overflow must be drop, sample or block, not " + value);
+        }
+    }
+
+    /** Redirect path: records one click on link {@code id} from this client. */
+    public void record(long id, String clientIp, String userAgent) {
+        if (ring == null) {
+            handle(id, clientIp, userAgent, 1);
+            return;
+        }
+
+        int weight = 1;
+        if (overflow == Overflow.SAMPLE && ring.occupancy() >= highWater) {
+            if (ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+                sampledOut.increment();
+                return;
+            }
+            weight = sampleRate;
+        }
+        if (ring.tryPublish(id, clientIp, userAgent, weight)) return;
+        if (ring.isClosed()) { // shutting down: redirects still in flight must not lose clicks
+            handle(id, clientIp, userAgent, weight);
+            return;
+        }
+
+        if (overflow == Overflow.BLOCK) {
+            blocked.increment();
+            long deadline = System.nanoTime() + maxBlockNanos;
+            while (System.nanoTime() - deadline < 0) {
+                LockSupport.parkNanos(10_000);
+                if (ring.tryPublish(id, clientIp, userAgent, weight)) return;
+                if (ring.isClosed()) {
+                    handle(id, clientIp, userAgent, weight);
+                    return;
+                }
+            }
+        }
+        dropped.increment(weight);
+    }
+
+    private void handle(long id, String clientIp, String userAgent, int weight) {
+        for (int i = 0; i < weight; i++) tracker.record(id);
+        visitors.record(id, clientIp, userAgent);
+    }
+
+    /**
+     * Runs before the tracker's and sketches' own shutdown flushes (they are dependencies), so
+     * the drained ring and clicks recorded inline after this still make those flushes. Anything
+     * later would be lost, which {@code server.shutdown: graceful} prevents by finishing in-flight
+     * redirects first; a click that gets through anyway is counted in
+     * {@code shortener_click_late_dropped_total}.
+     */
+    @PreDestroy
+    void close() {
+        if (ring != null) ring.close();
+    }
+}
@@ -0,0 +1,368 @@
+package dev.hvsawal.shortener.analytics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only, memory-mapped log of counted clicks, one chain of segments per
+ * {@link ClickCounterTable} epoch, kept until that epoch's counts are committed to the DB.
+ *
+ * <p>A segment is a pre-sized, mapped file ({@code segment-<n>.log}) whose first 8 bytes hold the
+ * epoch it belongs to (0: spare); a record is the 8-byte id. Appenders reserve a slot with one
+ * atomic add and write it with one aligned store, so there is no lock on the append path; a full
+ * segment rotates to another one. Slots that were reserved but never written read back as 0 and
+ * are skipped.
+ *
+ * <p>Segments are recycled, not deleted: once an epoch is committed its segments are zeroed and
+ * go back to a pool of spares, which a background thread keeps topped up. Appends only ever take
+ * a ready spare, so the redirect path never creates, sizes or maps a file and never sees an I/O
+ * error; with no spare left, {@link #append} returns {@code false}. Spares beyond
+ * {@value #MAX_SPARES} (left over from a backlog) are deleted.
+ *
+ * <p>Durability: a record is in the page cache as soon as {@link #append} returns, so it survives
+ * a process crash. The same background thread forces dirty segments to disk every
+ * {@code fsyncIntervalMs} (group commit), which bounds what an OS crash or power loss can take.
+ *
+ * <p>The directory also holds {@code node-id}, the stable name this node's DB checkpoint is
+ * stored under.
+ */
+final class ClickJournal implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickJournal.class);
+
+    static final int RECORD_BYTES = 8;
+    private static final int HEADER_BYTES = 8; // the segment's epoch, 0 while it is spare
+    private static final int PAGE = 4096;
+    static final int SPARES = 2; // kept ready for new epochs and rotations
+    static final int MAX_SPARES = 8;
+    private static final Pattern SEGMENT = Pattern.compile("segment-(\\d{6})\\.log");
+    private static final byte[] ZEROS = new byte[64 * 1024];
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final String nodeId;
+    private final AtomicInteger nextFile = new AtomicInteger();
+
+    private final ConcurrentHashMap<Long, EpochLog> epochs = new ConcurrentHashMap<>();
+    private volatile EpochLog last;
+    private final Queue<Segment> spares = new ConcurrentLinkedQueue<>();
+    private final Queue<Segment> released = new ConcurrentLinkedQueue<>(); // committed, not yet zeroed
+
+    private final Thread maintainer;
+    private volatile boolean closed;
+
+    ClickJournal(Path dir, int segmentBytes, int fsyncIntervalMs) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = Math.max(PAGE, segmentBytes / RECORD_BYTES * RECORD_BYTES);
+        Files.createDirectories(dir);
+        this.nodeId = loadNodeId(dir.resolve("node-id"));
+        load();
+        while (spares.size() < SPARES) spares.add(createSegment());
+
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, fsyncIntervalMs));
+        this.maintainer = Thread.ofPlatform().daemon().name("click-journal-sync").start(() -> {
+            while (!closed) {
+                LockSupport.parkNanos(intervalNanos); // or sooner, when segments were released
+                if (!closed) maintain();
+            }
+        });
+    }
+
+    String nodeId() {
+        return nodeId;
+    }
+
+    /** Epochs that still have segments, ascending: unflushed work from this or a previous run. */
+    List<Long> epochsOnDisk() {
+        List<Long> out = new ArrayList<>(epochs.keySet());
+        out.sort(null);
+        return out;
+    }
+
+    /**
+     * Called from inside the counter table's writer registration (see {@link ClickCounterTable.EpochSink}).
+     *
+     * @return {@code false} if no spare segment was ready, in which case nothing was written
+     */
+    boolean append(long epoch, long id) {
+        EpochLog l = last;
+        if (l == null || l.epoch != epoch) {
+            l = epochs.computeIfAbsent(epoch, EpochLog::new);
+            last = l;
+        }
+        return l.append(id);
+    }
+
+    /** No more appends to {@code epoch} can happen (it was drained): force it to disk. */
+    void seal(long epoch) {
+        EpochLog l = epochs.get(epoch);
+        if (l != null) {
+            if (last == l) last = null;
+            l.sealed = true;
+            for (Segment s : l.segments) s.forceAll();
+        }
+    }
+
+    /**
+     * Reads every record of one epoch back and aggregates it by id.
+     *
+     * @return ids ascending with their click counts
+     */
+    Counts read(long epoch) {
+        EpochLog l = epochs.get(epoch);
+        long[] ids = new long[1024];
+        int n = 0;
+        long lastWrite = 0;
+        for (Segment s : l != null ? l.segments : List.<Segment>of()) {
+            lastWrite = Math.max(lastWrite, s.lastModifiedMillis());
+            int upTo = s.used();
+            for (int pos = HEADER_BYTES; pos < upTo; pos += RECORD_BYTES) {
+                long id = s.buf.getLong(pos);
+                if (id == 0) continue;
+                if (n == ids.length) ids = Arrays.copyOf(ids, n * 2);
+                ids[n++] = id;
+            }
+        }
+        Arrays.sort(ids, 0, n);
+
+        long[] counts = new long[n];
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (distinct > 0 && ids[distinct - 1] == ids[i]) {
+                counts[distinct - 1]++;
+            } else {
+                ids[distinct] = ids[i];
+                counts[distinct++] = 1;
+            }
+        }
+        return new Counts(ids, counts, distinct, lastWrite);
+    }
+
+    /** The epoch's counts are in the DB: release its segments for reuse. */
+    void delete(long epoch) {
+        EpochLog l = epochs.remove(epoch);
+        if (l == null) return;
+        if (last == l) last = null;
+        released.addAll(l.segments);
+        LockSupport.unpark(maintainer);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(maintainer);
+        for (EpochLog l : epochs.values()) l.force();
+    }
+
+    /**
+     * {@code ids[0..n)} ascending, {@code counts[i]} clicks for {@code ids[i]}; {@code lastWriteMillis}
+     * is the newest segment mtime, roughly when the epoch stopped taking clicks (0 if unknown).
+     */
+    record Counts(long[] ids, long[] counts, int n, long lastWriteMillis) {}
+
+    /**
+     * Background work, off the append path: forces open epochs, zeroes released segments back into
+     * spares (or deletes them past {@value #MAX_SPARES}) and tops the spares up to {@value #SPARES}.
+     */
+    synchronized void maintain() {
+        for (EpochLog l : epochs.values()) {
+            if (!l.sealed) l.force();
+        }
+        try {
+            for (Segment s; (s = released.poll()) != null; ) {
+                if (spares.size() < MAX_SPARES) {
+                    s.zero();
+                    spares.add(s);
+                } else {
+                    Files.deleteIfExists(s.file); // the mapping goes with the buffer, at GC
+                }
+            }
+            while (spares.size() < SPARES) spares.add(createSegment());
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Click journal maintenance failed in {}; appends fail once spares run out. {}", dir, e.toString());
+        }
+    }
+
+    /** Maps the segments a previous run left: their epochs come back as unflushed work, spares are reused. */
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "segment-*.log")) {
+            for (Path f : ds) {
+                Matcher m = SEGMENT.matcher(f.getFileName().toString());
+                if (!m.matches()) continue;
+                files.add(f);
+                nextFile.accumulateAndGet(Integer.parseInt(m.group(1)) + 1, Math::max);
+            }
+        }
+        files.sort(null);
+        for (Path f : files) {
+            Segment s = mapSegment(f, Files.size(f));
+            s.next.set(s.scanUsed());
+            long epoch = s.buf.getLong(0);
+            if (epoch == 0) {
+                released.add(s); // may still hold records of a recycle that was cut short
+            } else {
+                EpochLog l = epochs.computeIfAbsent(epoch, EpochLog::new);
+                l.sealed = true;
+                l.segments.add(s);
+            }
+        }
+        maintain();
+    }
+
+    private Segment createSegment() throws IOException {
+        Path f = dir.resolve(String.format("segment-%06d.log", nextFile.getAndIncrement()));
+        return mapSegment(f, segmentBytes);
+    }
+
+    private static Segment mapSegment(Path f, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f.toFile(), "rw")) {
+            if (raf.length() != size) raf.setLength(size); // sparse
+            return new Segment(f, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    private static String loadNodeId(Path file) throws IOException {
+        if (Files.exists(file)) return Files.readString(file, StandardCharsets.US_ASCII).trim();
+        String id = UUID.randomUUID().toString();
+        Files.writeString(file, id, StandardCharsets.US_ASCII);
+        return id;
+    }
+
+    private final class EpochLog {
+        final long epoch;
+        final List<Segment> segments = new CopyOnWriteArrayList<>();
+        volatile Segment current; // null until the first append takes a spare
+        volatile boolean sealed;
+
+        EpochLog(long epoch) {
+            this.epoch = epoch;
+        }
+
+        boolean append(long id) {
+            while (true) {
+                Segment s = current;
+                if (s != null && s.tryAppend(id)) return true;
+                if (!rotate(s)) return false;
+            }
+        }
+
+        private synchronized boolean rotate(Segment full) {
+            if (current != full) return true;
+            Segment s = spares.poll(); // refilled within one fsync interval
+            if (s == null) return false;
+            s.assign(epoch);
+            segments.add(s);
+            current = s;
+            return true;
+        }
+
+        void force() {
+            for (Segment s : segments) s.force();
+        }
+    }
+
+    private static final class Segment {
+        final Path file;
+        final MappedByteBuffer buf;
+        final AtomicInteger next = new AtomicInteger(HEADER_BYTES);
+        int forced;
+
+        Segment(Path file, MappedByteBuffer buf) {
+            this.file = file;
+            this.buf = buf;
+        }
+
+        boolean tryAppend(long id) {
+            int pos = next.getAndAdd(RECORD_BYTES);
+            if (pos < 0 || pos > buf.capacity() - RECORD_BYTES) return false;
+            buf.putLong(pos, id);
+            return true;
+        }
+
+        /** End of the reserved records (some may still be 0). */
+        int used() {
+            int n = next.get();
+            return n < 0 ? buf.capacity() : Math.min(n, buf.capacity());
+        }
+
+        /** After a restart: end of the last non-zero record. */
+        int scanUsed() {
+            int pos = (buf.capacity() - HEADER_BYTES) / RECORD_BYTES * RECORD_BYTES + HEADER_BYTES;
+            while (pos > HEADER_BYTES && buf.getLong(pos - RECORD_BYTES) == 0) pos -= RECORD_BYTES;
+            return pos;
+        }
+
+        void assign(long epoch) {
+            buf.putLong(0, epoch);
+        }
+
+        /**
+         * Back to spare. The header goes first (and to disk), so a crash half-way leaves a spare
+         * with stale records, which is zeroed again on the next start, never an epoch with some of
+         * its records missing.
+         */
+        synchronized void zero() {
+            int upTo = used();
+            buf.putLong(0, 0);
+            buf.force(0, Math.min(PAGE, buf.capacity()));
+            for (int pos = HEADER_BYTES; pos < upTo; pos += ZEROS.length) {
+                buf.put(pos, ZEROS, 0, Math.min(ZEROS.length, upTo - pos));
+            }
+            buf.force();
+            next.set(HEADER_BYTES);
+            forced = 0;
+        }
+
+        long lastModifiedMillis() {
+            try {
+                return Files.getLastModifiedTime(file).toMillis();
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        /** Syncs what was reserved since the last call; the last page is redone next time (late writers). */
+        synchronized void force() {
+            int upTo = used();
+            if (upTo <= forced) return;
+            try {
+                buf.force(forced, upTo - forced);
+                forced = upTo & ~(PAGE - 1);
+            } catch (UncheckedIOException e) {
+                log.warn("Click journal fsync failed. {}", e.toString());
+            }
+        }
+
+        synchronized void forceAll() {
+            try {
+                buf.force();
+            } catch (UncheckedIOException e) {
+                log.warn("Click journal fsync failed. {}", e.toString());
+            }
+        }
+    }
+}
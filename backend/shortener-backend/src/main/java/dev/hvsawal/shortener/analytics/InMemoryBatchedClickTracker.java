@@ -1,80 +1,269 @@
 package dev.hvsawal.shortener.analytics;
 
+import dev.hvsawal.shortener.analytics.ClickCheckpointStore.Checkpoint;
 import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.repository.AnalyticsDatabase;
+import dev.hvsawal.shortener.repository.ClickBucketRepository;
 import dev.hvsawal.shortener.repository.ShortUrlRepository;
-import dev.hvsawal.shortener.support.resilience.DbBulkhead;
+import dev.hvsawal.shortener.support.resilience.AnalyticsBulkhead;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Map;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Counts clicks in a {@link ClickCounterTable} and periodically adds them to short_url.click_count.
+ *
+ * <p>With {@code shortener.clickcount.journal.enabled}, every counted click is also appended to a
+ * {@link ClickJournal} under the table's current epoch. A drained epoch's segments are released only
+ * after all of its chunks are committed, each chunk together with this node's checkpoint row, so
+ * a failed flush or a crash leaves the epoch on disk and a later flush (or the first one after a
+ * restart) replays it from the checkpoint on: no click lost, none counted twice. Epochs start
+ * after the stored checkpoint's, so a clock that went back can't make new clicks look applied; an
+ * epoch older than the checkpoint anyway (two nodes sharing a node-id) is neither applied nor
+ * deleted, but logged and counted in {@code shortener_click_journal_held_epochs_total}. Clicks a full
+ * buffer stripe turns away are journaled too, and an epoch that has any is applied from its journal
+ * (merged with memory) rather than from memory alone, so overflow costs a read, not clicks. Without
+ * the journal, clicks are best effort as before and overflow is dropped.
+ *
+ * <p>With {@code shortener.clickcount.buckets.enabled}, each chunk also adds its deltas to the
+ * per-minute and per-hour click_bucket rows, in the same transaction as click_count. A drained
+ * epoch is bucketed at drain time and a replayed one at its journal files' last write, so a click
+ * can land up to one flush interval (or one outage, for replays) after the bucket it happened in.
+ *
+ * <p>Every drained batch is also handed to {@link TrendingClicks}, whether or not the DB write
+ * succeeds; replayed epochs are not, they are no longer trending.
+ *
+ * <p>All writes go through {@link AnalyticsDatabase} under an {@link AnalyticsBulkhead} flush
+ * permit, never the redirect pool. A flush runs every {@code flush-interval-ms}, and also as soon
+ * as the buffer is {@code flush-at-occupancy} full, so bursts don't fill it up between ticks.
+ */
 @Component
 public class InMemoryBatchedClickTracker implements ClickTracker {
 
     private static final Logger log = LoggerFactory.getLogger(InMemoryBatchedClickTracker.class);
-    private final TransactionTemplate tx;
 
     private final boolean enabled;
-    private final int maxEntries;
+    private final int chunkSize;
+    private final int flushAtEntries;
+    private final RetryTemplate retry;
+
+    private final ClickCounterTable counters;
 
-    private final AtomicReference<ConcurrentHashMap<Long, LongAdder>> buffer =
-            new AtomicReference<>(new ConcurrentHashMap<>());
-    private final AtomicInteger approxEntries = new AtomicInteger(0);
+    // Drain scratch, reused across flushes; flushLock serializes flushes (one drainer at a time)
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final long[] drainedIds;
+    private final long[] drainedDeltas;
 
     private final ShortUrlRepository repo;
-    private final DbBulkhead bulkhead;
+    private final ClickBucketRepository buckets; // null when bucketing is off
+    private final TrendingClicks trending;
+    private final AnalyticsBulkhead bulkhead;
+
+    // Journal mode only (null otherwise); pending and checkpoint are touched under flushLock
+    private final ClickJournal journal;
+    private final ClickCheckpointStore checkpoints;
+    private final TransactionTemplate tx;
+    private final NavigableSet<Long> pending = new ConcurrentSkipListSet<>();
+    private final Set<Long> overflowEpochs = ConcurrentHashMap.newKeySet(); // epochs with journal-only clicks
+    private Checkpoint checkpoint;
+    private final ClickCounterTable.EpochSink journalSink = new ClickCounterTable.EpochSink() {
+        @Override
+        public void counted(long epoch, long id) {
+            // Still counted in memory; only lost if the DB write for its epoch fails too
+            if (!journal.append(epoch, id)) journalErrors.increment();
+        }
+
+        @Override
+        public boolean overflow(long epoch, long id) {
+            if (!journal.append(epoch, id)) return false;
+            overflowEpochs.add(epoch);
+            overflowJournaled.increment();
+            return true;
+        }
+    };
 
     private final Counter recorded;
     private final Counter dropped;
+    private final Counter lateDropped;
+    private final Counter overflowJournaled;
     private final Counter flushed;
+    private final Counter flushRetries;
+    private final Counter flushFailed;
+    private final Timer flushLatency;
+    private final DistributionSummary flushRows;
+    private final Counter journalErrors;
+    private final Counter replayed;
+    private final Counter flushSkipped;
+    private final Counter heldBack;
+
+    // When the last flush that left nothing behind started: everything counted before it is in the DB
+    private volatile long lastCompleteFlushNanos = System.nanoTime();
+
+    private volatile boolean closed; // final flush started: later clicks would sit in memory forever
 
     public InMemoryBatchedClickTracker(ShortenerConfigurationProperties props,
                                        ShortUrlRepository repo,
-                                       DbBulkhead bulkhead,
-                                       MeterRegistry registry,
-                                       PlatformTransactionManager txManager) {
-        this.enabled = props.clickcount().enabled();
-        this.maxEntries = Math.max(1, props.clickcount().maxBufferEntries());
+                                       ClickBucketRepository buckets,
+                                       TrendingClicks trending,
+                                       AnalyticsBulkhead bulkhead,
+                                       AnalyticsDatabase analyticsDb,
+                                       MeterRegistry registry) {
+        var cc = props.clickcount();
+        this.enabled = cc.enabled();
+        this.journal = enabled ? openJournal(cc.journal()) : null;
+        this.checkpoints = journal != null ? new ClickCheckpointStore(analyticsDb.jdbc(), journal.nodeId()) : null;
+        this.tx = analyticsDb.tx();
+
+        // Epochs must keep increasing across restarts (the checkpoint compares them). The wall clock
+        // in millis mostly does that (a run advances its epoch at most once per flush, and flushes are
+        // more than a millisecond apart); the stored checkpoint and the journal cover a clock that
+        // went back.
+        long firstEpoch = System.currentTimeMillis();
+        if (journal != null) {
+            try {
+                checkpoint = checkpoints.load();
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("cannot read click journal checkpoint for node " + journal.nodeId(), e);
+            }
+            if (checkpoint.epoch() >= firstEpoch) {
+                log.warn("Click journal checkpoint epoch {} is not behind the clock ({}); starting after it",
+                        checkpoint.epoch(), firstEpoch);
+                firstEpoch = checkpoint.epoch() + 1;
+            }
+            List<Long> onDisk = journal.epochsOnDisk();
+            pending.addAll(onDisk);
+            if (!onDisk.isEmpty()) {
+                firstEpoch = Math.max(firstEpoch, onDisk.getLast() + 1);
+                log.info("Click journal has {} unflushed epoch(s); replaying them on the next flush", onDisk.size());
+            }
+        }
+        this.counters = new ClickCounterTable(enabled ? cc.maxBufferEntries() : 1, firstEpoch);
+        this.drainedIds = new long[counters.slots()];
+        this.drainedDeltas = new long[counters.slots()];
+        this.chunkSize = cc.flushChunkSize() > 0 ? cc.flushChunkSize() : 5_000;
+        double at = cc.flushAtOccupancy() > 0 && cc.flushAtOccupancy() <= 1 ? cc.flushAtOccupancy() : 0.5;
+        this.flushAtEntries = (int) Math.max(1, at * cc.maxBufferEntries());
         this.repo = repo;
+        this.buckets = cc.buckets() != null && cc.buckets().enabled() ? buckets : null;
+        this.trending = trending;
         this.bulkhead = bulkhead;
-        this.tx = new TransactionTemplate(txManager);
-        this.tx.setTimeout(1);
 
         this.recorded = Counter.builder("shortener_click_recorded_total").register(registry);
         this.dropped = Counter.builder("shortener_click_dropped_total").register(registry);
+        this.lateDropped = Counter.builder("shortener_click_late_dropped_total")
+                .description("Clicks recorded after the shutdown flush, so never written")
+                .register(registry);
+        this.overflowJournaled = Counter.builder("shortener_click_overflow_journaled_total")
+                .description("Clicks the buffer had no room for, kept in the journal and applied from it")
+                .register(registry);
         this.flushed = Counter.builder("shortener_click_flushed_total").register(registry);
+        this.flushRetries = Counter.builder("shortener_click_flush_retries_total")
+                .description("Chunk statements retried after a transient DB error")
+                .register(registry);
+        this.flushFailed = Counter.builder("shortener_click_flush_failed_total")
+                .description("Clicks dropped because their chunk failed every attempt")
+                .register(registry);
+        this.flushLatency = Timer.builder("shortener_click_flush_seconds")
+                .description("Wall time of one flush, all chunks")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.flushRows = DistributionSummary.builder("shortener_click_flush_rows")
+                .description("Rows updated per flush")
+                .register(registry);
+        this.journalErrors = Counter.builder("shortener_click_journal_errors_total")
+                .description("Clicks counted in memory that could not be appended to the journal (no spare segment)")
+                .register(registry);
+        this.replayed = Counter.builder("shortener_click_journal_replayed_epochs_total")
+                .description("Epochs applied from journal files rather than straight from memory")
+                .register(registry);
+        Gauge.builder("shortener_click_journal_pending_epochs", pending, NavigableSet::size)
+                .description("Drained epochs whose clicks are on disk but not yet committed")
+                .register(registry);
+        this.flushSkipped = Counter.builder("shortener_click_flush_skipped_total")
+                .description("Flushes skipped because no analytics DB permit was free")
+                .register(registry);
+        this.heldBack = Counter.builder("shortener_click_journal_held_epochs_total")
+                .description("Journal epochs older than the stored checkpoint, left on disk unapplied")
+                .register(registry);
+        Gauge.builder("shortener_click_buffer_entries", counters, ClickCounterTable::size)
+                .description("Distinct ids counted since the last drain")
+                .register(registry);
+        Gauge.builder("shortener_click_buffer_occupancy", this,
+                        t -> (double) t.counters.size() / Math.max(1, cc.maxBufferEntries()))
+                .description("Buffer entries as a fraction of max-buffer-entries")
+                .register(registry);
+        Gauge.builder("shortener_click_flush_lag_seconds", this,
+                        t -> (System.nanoTime() - t.lastCompleteFlushNanos) / 1e9)
+                .description("Time since the last flush that committed everything; bounds how stale click_count is")
+                .register(registry);
+
+        this.retry = RetryTemplate.builder()
+                .maxAttempts(Math.max(1, cc.flushMaxAttempts()))
+                .exponentialBackoff(50, 2, 500, true)
+                .retryOn(TransientDataAccessException.class)
+                .retryOn(CannotGetJdbcConnectionException.class)
+                .traversingCauses()
+                .withListener(new RetryListener() {
+                    @Override
+                    public <T, E extends Throwable> void onError(RetryContext ctx, RetryCallback<T, E> cb, Throwable t) {
+                        flushRetries.increment();
+                    }
+                })
+                .build();
     }
 
     @Override
     public void record(long id) {
         if (!enabled) return;
-
-        if (approxEntries.get() > maxEntries) {
-            dropped.increment();
+        if (closed) {
+            lateDropped.increment();
             return;
         }
 
-        ConcurrentHashMap<Long, LongAdder> map = buffer.get();
-        LongAdder adder = map.get(id);
-        if (adder == null) {
-            LongAdder newAdder = new LongAdder();
-            LongAdder existing = map.putIfAbsent(id, newAdder);
-            adder = (existing != null) ? existing : newAdder;
-            if (existing == null) approxEntries.incrementAndGet();
+        if (counters.increment(id, journal != null ? journalSink : null)) {
+            recorded.increment();
+        } else {
+            // this id's stripe is full until the next flush, and the journal couldn't take it
+            dropped.increment();
         }
+    }
 
-        adder.increment();
-        recorded.increment();
+    private static ClickJournal openJournal(ShortenerConfigurationProperties.Clickcount.Journal j) {
+        if (j == null || !j.enabled()) return null;
+        try {
+            ClickJournal journal = new ClickJournal(Path.of(j.dir()), j.segmentBytes(), j.fsyncIntervalMs());
+            log.info("Click journal at {} (node {})", j.dir(), journal.nodeId());
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Click journal disabled, cannot open {}. Clicks are best effort. {}", j.dir(), e.toString());
+            return null;
+        }
     }
 
     // flush interval controlled by @Scheduled + config value below
@@ -82,37 +271,175 @@ public class InMemoryBatchedClickTracker implements ClickTracker {
     public void scheduledFlush() {
         if (!enabled) return;
 
-        //never block redirect traffic.
-        //If DB is busy, skip this flush.
-        try (var permit = bulkhead.tryAcquireResolve()) {
-            if (!permit.acquired()) return;
+        // Analytics pool only; if every permit is busy, skip this flush
+        try (var permit = bulkhead.tryAcquireFlush()) {
+            if (!permit.acquired()) {
+                flushSkipped.increment();
+                return;
+            }
             flushNow();
         }
     }
 
+    /** Size trigger: flushes early once the buffer reaches {@code flush-at-occupancy}. */
+    @Scheduled(fixedDelayString = "${shortener.clickcount.size-check-interval-ms:50}")
+    public void sizeTriggeredFlush() {
+        if (enabled && counters.size() >= flushAtEntries) scheduledFlush();
+    }
+
+    /**
+     * Drains the counter table (ids come out sorted, so concurrent flushes from several nodes tend
+     * to lock rows in the same order) and writes it in chunks of {@code flush-chunk-size}: one
+     * UPDATE per chunk, each retried on transient errors. In journal mode, pending epochs go
+     * first, oldest first, and the first one that fails stops the flush.
+     */
     void flushNow() {
-        Map<Long, LongAdder> old = buffer.getAndSet(new ConcurrentHashMap<>());
-        approxEntries.set(0);
+        flushLock.lock();
+        try {
+            long started = System.nanoTime();
+            long epoch = counters.activeEpoch();
+            int n = counters.drainTo(drainedIds, drainedDeltas);
+            long drainedAt = System.currentTimeMillis();
+            trending.offer(drainedIds, drainedDeltas, n, drainedAt);
+            boolean complete;
+            if (journal == null) {
+                complete = apply(0, drainedIds, drainedDeltas, n, drainedAt, false);
+            } else {
+                journal.seal(epoch);
+                if (n > 0 || overflowEpochs.contains(epoch)) pending.add(epoch);
+                flushPending(epoch, n, drainedAt);
+                complete = pending.isEmpty();
+            }
+            if (complete) lastCompleteFlushNanos = started;
+        } finally {
+            flushLock.unlock();
+        }
+    }
 
-        long totalDelta = 0;
+    private void flushPending(long drainedEpoch, int drainedCount, long drainedAt) {
+        try {
+            for (Iterator<Long> it = pending.iterator(); it.hasNext(); ) {
+                long e = it.next();
+                if (e < checkpoint.epoch()) {
+                    // Can't tell whether these were applied: neither apply nor delete, and make noise
+                    heldBack.increment();
+                    log.error("Click journal epoch {} is older than the stored checkpoint {} for node {}; not applying it, "
+                                    + "its files stay in the journal for manual recovery. Clock went back, or is this "
+                                    + "node-id shared with another node?", e, checkpoint, journal.nodeId());
+                    it.remove();
+                    overflowEpochs.remove(e);
+                    continue;
+                }
+                boolean applied;
+                if (e == drainedEpoch && !overflowEpochs.contains(e)) {
+                    applied = apply(e, drainedIds, drainedDeltas, drainedCount, drainedAt, true);
+                } else if (e == drainedEpoch) {
+                    // The journal also has the clicks memory had no room for. Per id, the larger count
+                    // wins: memory misses overflow, the journal misses failed appends.
+                    ClickJournal.Counts c = journal.read(e);
+                    long[] ids = new long[drainedCount + c.n()];
+                    long[] deltas = new long[ids.length];
+                    int merged = mergeMax(drainedIds, drainedDeltas, drainedCount, c.ids(), c.counts(), c.n(), ids, deltas);
+                    applied = apply(e, ids, deltas, merged, drainedAt, true);
+                } else {
+                    ClickJournal.Counts c = journal.read(e);
+                    long at = c.lastWriteMillis() > 0 ? c.lastWriteMillis() : drainedAt;
+                    applied = apply(e, c.ids(), c.counts(), c.n(), at, true);
+                    if (applied) replayed.increment();
+                }
+                if (!applied) return;
+                journal.delete(e);
+                it.remove();
+                overflowEpochs.remove(e);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Click flush stopped; {} epoch(s) stay in the journal for the next one. {}", pending.size(), ex.toString());
+        }
+    }
 
-        for (Map.Entry<Long, LongAdder> e : old.entrySet()) {
-            long id = e.getKey();
-            long delta = e.getValue().sumThenReset();
-            if (delta <= 0) continue;
+    /** Merges two id-sorted count lists, keeping the larger count of an id present in both. */
+    private static int mergeMax(long[] aIds, long[] aCounts, int an, long[] bIds, long[] bCounts, int bn,
+                        long[] outIds, long[] outCounts) {
+        int i = 0, j = 0, n = 0;
+        while (i < an || j < bn) {
+            if (j == bn || (i < an && aIds[i] < bIds[j])) {
+                outIds[n] = aIds[i];
+                outCounts[n++] = aCounts[i++];
+            } else if (i == an || bIds[j] < aIds[i]) {
+                outIds[n] = bIds[j];
+                outCounts[n++] = bCounts[j++];
+            } else {
+                outIds[n] = aIds[i];
+                outCounts[n++] = Math.max(aCounts[i++], bCounts[j++]);
+            }
+        }
+        return n;
+    }
 
-            totalDelta += delta;
+    /**
+     * @param at when the clicks are bucketed (epoch millis)
+     * @return whether every chunk was committed
+     */
+    private boolean apply(long epoch, long[] ids, long[] deltas, int n, long at, boolean checkpointed) {
+        int first = checkpointed ? checkpoint.firstUnapplied(epoch, ids, n) : 0;
+        if (first == Checkpoint.BEHIND) return false; // flushPending holds these back before we get here
+        if (first >= n) return true;
+        long start = System.nanoTime();
+
+        boolean complete = true;
+        long totalDelta = 0;
+        int rows = 0;
+        for (int from = first; from < n; from += chunkSize) {
+            int to = Math.min(n, from + chunkSize);
+            long[] chunkIds = Arrays.copyOfRange(ids, from, to);
+            long[] chunkDeltas = Arrays.copyOfRange(deltas, from, to);
+            long chunkDelta = 0;
+            for (long d : chunkDeltas) chunkDelta += d;
 
             try {
-                tx.executeWithoutResult(status -> repo.incrementClickCount(id, delta));
-                flushed.increment(delta);
+                Checkpoint next = checkpointed ? new Checkpoint(epoch, chunkIds[chunkIds.length - 1]) : null;
+                if (next != null || buckets != null) {
+                    rows += retry.execute(ctx -> tx.execute(status -> {
+                        int updated = repo.addClickCounts(chunkIds, chunkDeltas);
+                        if (buckets != null) buckets.addClicks(chunkIds, chunkDeltas, at);
+                        if (next != null) checkpoints.save(next);
+                        return updated;
+                    }));
+                    if (next != null) checkpoint = next;
+                } else {
+                    rows += retry.execute(ctx -> repo.addClickCounts(chunkIds, chunkDeltas));
+                }
+                flushed.increment(chunkDelta);
+                totalDelta += chunkDelta;
             } catch (Exception ex) {
-                log.warn("Click flush failed for id={} delta={} (dropping). {}", id, delta, ex.toString());
+                complete = false;
+                if (checkpointed) {
+                    log.warn("Click flush failed for epoch {} ({} ids, {} clicks); kept in journal. {}",
+                            epoch, to - from, chunkDelta, ex.toString());
+                    break;
+                }
+                flushFailed.increment(chunkDelta);
+                log.warn("Click flush failed for {} ids, {} clicks (dropping). {}", to - from, chunkDelta, ex.toString());
             }
         }
 
+        flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        flushRows.record(rows);
         if (totalDelta > 0) {
-            log.debug("Flushed click deltas total={}", totalDelta);
+            log.debug("Flushed click deltas total={} rows={}", totalDelta, rows);
         }
+        return complete;
+    }
+
+    /**
+     * Runs after {@link ClickEvents#close} (which depends on this bean) has drained its ring, and
+     * after the web server's graceful shutdown, so no redirect is still recording.
+     */
+    @PreDestroy
+    void close() {
+        if (!enabled) return;
+        closed = true;
+        flushNow();
+        if (journal != null) journal.close();
     }
 }
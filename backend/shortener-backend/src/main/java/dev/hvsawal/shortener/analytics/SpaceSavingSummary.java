@@ -0,0 +1,65 @@
+package dev.hvsawal.shortener.analytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitters summary with at most {@code capacity} counters, fed with weighted,
+ * pre-aggregated batches (a drained {@link ClickCounterTable}).
+ *
+ * <p>Each counter holds an upper bound on its id's clicks and how much of that bound may be
+ * overcount. {@link #floor()} bounds every id without a counter. A batch is added to existing
+ * counters; new ids start at the floor (the most they could have had before). If that leaves
+ * more than {@code capacity} counters, the lowest are dropped and the floor rises to the highest
+ * dropped bound. Not thread-safe.
+ */
+final class SpaceSavingSummary {
+
+    private final int capacity;
+    private final HashMap<Long, long[]> counters; // id -> {upper bound, error}
+    private long floor;
+
+    SpaceSavingSummary(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.counters = new HashMap<>(this.capacity * 2);
+    }
+
+    void addAll(long[] ids, long[] deltas, int n) {
+        for (int i = 0; i < n; i++) {
+            long[] c = counters.get(ids[i]);
+            if (c != null) {
+                c[0] += deltas[i];
+            } else {
+                counters.put(ids[i], new long[]{floor + deltas[i], floor});
+            }
+        }
+        if (counters.size() > capacity) shrink();
+    }
+
+    void clear() {
+        counters.clear();
+        floor = 0;
+    }
+
+    /** Upper bound on the clicks of any id not in {@link #counters()}. */
+    long floor() {
+        return floor;
+    }
+
+    /** Live view: id → {upper bound, error}. */
+    Map<Long, long[]> counters() {
+        return counters;
+    }
+
+    private void shrink() {
+        List<Map.Entry<Long, long[]>> byBound = new ArrayList<>(counters.entrySet());
+        byBound.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        for (int i = capacity; i < byBound.size(); i++) {
+            Map.Entry<Long, long[]> e = byBound.get(i);
+            floor = Math.max(floor, e.getValue()[0]);
+            counters.remove(e.getKey());
+        }
+    }
+}
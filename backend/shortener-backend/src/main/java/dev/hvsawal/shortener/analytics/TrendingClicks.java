@@ -0,0 +1,101 @@
+package dev.hvsawal.shortener.analytics;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sliding-window top-K links on this node: one {@link SpaceSavingSummary} per wall-clock minute,
+ * in a ring of {@code max-window-minutes}, merged at query time.
+ *
+ * <p>Fed by the click flusher with each drained {@link ClickCounterTable} batch (already
+ * aggregated per id, sorted, off the redirect path), so recording a click costs nothing extra.
+ * Clicks are stamped with the minute they were drained in, i.e. up to one flush interval late.
+ * Both feeding and querying take this object's monitor; neither runs on the redirect path.
+ *
+ * <p>A window of N minutes covers the current (partial) minute and the N-1 before it. Merged
+ * counts are upper bounds: a minute in which an id had no counter contributes that minute's
+ * floor, which is also reported as possible overcount.
+ */
+@Component
+public class TrendingClicks {
+
+    private final boolean enabled;
+    private final int maxWindowMinutes;
+    private final SpaceSavingSummary[] ring;
+    private final long[] ringMinute;
+
+    public TrendingClicks(ShortenerConfigurationProperties props) {
+        var t = props.clickcount().trending();
+        this.enabled = props.clickcount().enabled() && t != null && t.enabled();
+        this.maxWindowMinutes = t != null ? Math.max(1, t.maxWindowMinutes()) : 60;
+        int capacity = t != null && t.capacityPerMinute() > 0 ? t.capacityPerMinute() : 1_000;
+        this.ring = new SpaceSavingSummary[enabled ? maxWindowMinutes : 0];
+        this.ringMinute = new long[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new SpaceSavingSummary(capacity);
+            ringMinute[i] = -1;
+        }
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public int maxWindowMinutes() {
+        return maxWindowMinutes;
+    }
+
+    /** Adds one drained batch ({@code ids[0..n)} distinct) to the minute containing {@code atMillis}. */
+    synchronized void offer(long[] ids, long[] deltas, int n, long atMillis) {
+        if (!enabled || n == 0) return;
+        long minute = Math.floorDiv(atMillis, 60_000L);
+        int slot = (int) Math.floorMod(minute, ring.length);
+        if (ringMinute[slot] != minute) {
+            ring[slot].clear();
+            ringMinute[slot] = minute;
+        }
+        ring[slot].addAll(ids, deltas, n);
+    }
+
+    /**
+     * The {@code k} ids with the highest click upper bounds over the last {@code minutes}
+     * minutes, highest first.
+     */
+    public synchronized List<Hit> top(int minutes, int k, long nowMillis) {
+        if (!enabled) return List.of();
+        long current = Math.floorDiv(nowMillis, 60_000L);
+        int span = Math.min(Math.max(1, minutes), ring.length);
+
+        // bound(id) = Σ present (count - floor) + Σ all floors; same for error
+        Map<Long, long[]> merged = new HashMap<>();
+        long totalFloor = 0;
+        for (long m = current - span + 1; m <= current; m++) {
+            int slot = (int) Math.floorMod(m, ring.length);
+            if (ringMinute[slot] != m) continue;
+            SpaceSavingSummary s = ring[slot];
+            long f = s.floor();
+            totalFloor += f;
+            for (Map.Entry<Long, long[]> e : s.counters().entrySet()) {
+                long[] acc = merged.computeIfAbsent(e.getKey(), id -> new long[2]);
+                acc[0] += e.getValue()[0] - f;
+                acc[1] += e.getValue()[1] - f;
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(merged.size());
+        for (Map.Entry<Long, long[]> e : merged.entrySet()) {
+            long[] acc = e.getValue();
+            hits.add(new Hit(e.getKey(), acc[0] + totalFloor, acc[1] + totalFloor));
+        }
+        hits.sort((a, b) -> a.clicks() != b.clicks() ? Long.compare(b.clicks(), a.clicks()) : Long.compare(a.id(), b.id()));
+        return hits.size() > k ? List.copyOf(hits.subList(0, k)) : hits;
+    }
+
+    /** {@code clicks} is an upper bound; the true count is at least {@code clicks - maxError}. */
+    public record Hit(long id, long clicks, long maxError) {}
+}
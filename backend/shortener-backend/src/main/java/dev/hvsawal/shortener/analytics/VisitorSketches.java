@@ -0,0 +1,244 @@
+package dev.hvsawal.shortener.analytics;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.core.HyperLogLog;
+import dev.hvsawal.shortener.repository.VisitorSketchRepository;
+import dev.hvsawal.shortener.support.resilience.AnalyticsBulkhead;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Unique visitors per link: each redirect adds a hash of (client IP, User-Agent) to the link's
+ * in-memory {@link HyperLogLog}, and a periodic flush merges those into short_url_visitors.
+ * No IP or User-Agent is kept, only register values.
+ *
+ * <p>A pending sketch starts sparse (up to {@value Sketch#SPARSE_MAX} registers, updated under
+ * the sketch's monitor) and turns dense (256 bytes, lock-free compare-and-set max per register)
+ * once it outgrows that, so a viral link costs one uncontended read per repeat visitor and at
+ * most ~300 bytes. At most {@code max-pending-links} links are tracked per flush interval;
+ * visitors of further links are dropped until the next flush.
+ *
+ * <p>Flushes swap in a fresh generation and wait for in-flight writers the same way
+ * {@link ClickCounterTable} does. A chunk that fails to commit is merged back into the current
+ * generation; merges are idempotent, so a retried or partly applied chunk can't overcount.
+ */
+@Component
+public class VisitorSketches {
+
+    private static final Logger log = LoggerFactory.getLogger(VisitorSketches.class);
+
+    private static final int STRIPES = 64;
+    private static final int PAD = 16; // one writers counter per cache line
+
+    private final boolean enabled;
+    private final int maxPendingLinks;
+    private final int chunkSize;
+    private final VisitorSketchRepository repo;
+    private final AnalyticsBulkhead bulkhead;
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private volatile Generation current = new Generation();
+
+    private final Counter dropped;
+    private final Counter flushedLinks;
+    private final Counter flushFailed;
+
+    public VisitorSketches(ShortenerConfigurationProperties props,
+                           VisitorSketchRepository repo,
+                           AnalyticsBulkhead bulkhead,
+                           MeterRegistry registry) {
+        var v = props.clickcount().visitors();
+        this.enabled = props.clickcount().enabled() && v != null && v.enabled();
+        this.maxPendingLinks = v != null && v.maxPendingLinks() > 0 ? v.maxPendingLinks() : 50_000;
+        this.chunkSize = v != null && v.flushChunkSize() > 0 ? v.flushChunkSize() : 1_000;
+        this.repo = repo;
+        this.bulkhead = bulkhead;
+
+        this.dropped = Counter.builder("shortener_visitor_dropped_total")
+                .description("Visits not sketched because max-pending-links was reached")
+                .register(registry);
+        this.flushedLinks = Counter.builder("shortener_visitor_flushed_links_total")
+                .description("Per-link sketches merged into short_url_visitors")
+                .register(registry);
+        this.flushFailed = Counter.builder("shortener_visitor_flush_failed_total")
+                .description("Sketch chunks that failed to commit and were kept for the next flush")
+                .register(registry);
+        Gauge.builder("shortener_visitor_pending_links", this, s -> s.current.sketches.size())
+                .register(registry);
+    }
+
+    /** 64-bit hash of one visitor; inputs may be null. */
+    static long fingerprint(String clientIp, String userAgent) {
+        long h = 0xcbf29ce484222325L; // FNV-1a over the chars, then a finalizer for well-mixed high bits
+        if (clientIp != null) {
+            for (int i = 0; i < clientIp.length(); i++) h = (h ^ clientIp.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ '\n') * 0x100000001b3L;
+        if (userAgent != null) {
+            for (int i = 0; i < userAgent.length(); i++) h = (h ^ userAgent.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+    /** Redirect path: adds this client to link {@code id}'s pending sketch. */
+    public void record(long id, String clientIp, String userAgent) {
+        if (!enabled) return;
+        long fingerprint = fingerprint(clientIp, userAgent);
+        int idx = HyperLogLog.index(fingerprint);
+        int rank = HyperLogLog.rank(fingerprint);
+        int stripe = (int) (id & (STRIPES - 1)) * PAD;
+        while (true) {
+            Generation g = current;
+            g.writers.incrementAndGet(stripe);
+            try {
+                if (g != current) continue; // swapped under us: use the new generation
+                Sketch s = g.sketches.get(id);
+                if (s == null) {
+                    if (g.sketches.size() >= maxPendingLinks) {
+                        dropped.increment();
+                        return;
+                    }
+                    s = g.sketches.computeIfAbsent(id, k -> new Sketch());
+                }
+                s.set(idx, rank);
+                return;
+            } finally {
+                g.writers.decrementAndGet(stripe);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shortener.clickcount.visitors.flush-interval-ms:10000}")
+    public void scheduledFlush() {
+        if (!enabled) return;
+        // Lower priority than click-count flushes: only on a spare analytics permit, never waiting
+        try (var permit = bulkhead.tryAcquireBackground()) {
+            if (!permit.acquired()) return;
+            flushNow();
+        }
+    }
+
+    void flushNow() {
+        flushLock.lock();
+        try {
+            Generation old = current;
+            current = new Generation();
+            for (int i = 0; i < STRIPES; i++) {
+                while (old.writers.get(i * PAD) != 0) Thread.onSpinWait();
+            }
+            if (old.sketches.isEmpty()) return;
+
+            long[] ids = old.sketches.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+            for (int from = 0; from < ids.length; from += chunkSize) {
+                long[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + chunkSize));
+                HyperLogLog[] sketches = new HyperLogLog[chunk.length];
+                for (int i = 0; i < chunk.length; i++) sketches[i] = old.sketches.get(chunk[i]).toHyperLogLog();
+                try {
+                    repo.mergeAll(chunk, sketches);
+                    flushedLinks.increment(chunk.length);
+                } catch (RuntimeException e) {
+                    flushFailed.increment();
+                    log.warn("Visitor sketch flush failed for {} links; kept for the next flush. {}", chunk.length, e.toString());
+                    requeue(chunk, sketches);
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /** Called under flushLock, so the current generation can't be swapped meanwhile. */
+    private void requeue(long[] ids, HyperLogLog[] sketches) {
+        Map<Long, Sketch> target = current.sketches;
+        for (int i = 0; i < ids.length; i++) {
+            Sketch s = target.computeIfAbsent(ids[i], k -> new Sketch());
+            for (int r = 0; r < HyperLogLog.M; r++) {
+                int rank = sketches[i].get(r);
+                if (rank != 0) s.set(r, rank);
+            }
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        if (enabled) flushNow();
+    }
+
+    private static final class Generation {
+        final ConcurrentHashMap<Long, Sketch> sketches = new ConcurrentHashMap<>();
+        final AtomicIntegerArray writers = new AtomicIntegerArray(STRIPES * PAD);
+    }
+
+    /** Sparse (packed index/rank ints, under the monitor) until {@link #SPARSE_MAX} registers, then dense. */
+    static final class Sketch {
+        static final int SPARSE_MAX = 16;
+        private static final VarHandle REGISTER = MethodHandles.arrayElementVarHandle(byte[].class);
+
+        private volatile byte[] dense;
+        private int[] sparse = new int[4];
+        private int size;
+
+        void set(int index, int rank) {
+            byte[] d = dense;
+            if (d == null) {
+                synchronized (this) {
+                    d = dense;
+                    if (d == null) {
+                        setSparse(index, rank);
+                        return;
+                    }
+                }
+            }
+            byte cur;
+            while ((cur = (byte) REGISTER.getVolatile(d, index)) < rank) {
+                if (REGISTER.compareAndSet(d, index, cur, (byte) rank)) return;
+            }
+        }
+
+        private void setSparse(int index, int rank) {
+            for (int k = 0; k < size; k++) {
+                if (sparse[k] >>> 8 == index) {
+                    if (rank > (sparse[k] & 0xff)) sparse[k] = index << 8 | rank;
+                    return;
+                }
+            }
+            if (size == SPARSE_MAX) {
+                byte[] d = new byte[HyperLogLog.M];
+                for (int k = 0; k < size; k++) d[sparse[k] >>> 8] = (byte) (sparse[k] & 0xff);
+                d[index] = (byte) rank;
+                sparse = null;
+                dense = d;
+                return;
+            }
+            if (size == sparse.length) sparse = Arrays.copyOf(sparse, size * 2);
+            sparse[size++] = index << 8 | rank;
+        }
+
+        synchronized HyperLogLog toHyperLogLog() {
+            HyperLogLog h = new HyperLogLog();
+            byte[] d = dense;
+            if (d != null) {
+                for (int i = 0; i < HyperLogLog.M; i++) h.set(i, (byte) REGISTER.getVolatile(d, i));
+            } else {
+                for (int k = 0; k < size; k++) h.set(sparse[k] >>> 8, sparse[k] & 0xff);
+            }
+            return h;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package dev.hvsawal.shortener.cache;
+
+import java.util.TreeSet;
+
+/**
+ * Highest short_url_change_seq value below which every change has been applied, built from the
+ * sequence values carried in {@value ShortUrlChangeListener#CHANNEL} payloads.
+ *
+ * <p>Values are taken at nextval() but delivered in commit order, so they can arrive out of order;
+ * the mark only moves across a contiguous run. A value that never arrives (its transaction rolled
+ * back) holds the mark until it has been missing for {@code gapTimeoutNanos}, then is skipped.
+ * Not thread-safe: owned by the listener thread.
+ */
+final class ChangeWatermark {
+
+    private final long gapTimeoutNanos;
+    private final TreeSet<Long> ahead = new TreeSet<>();
+
+    private long mark;
+    private long gapSince; // nanoTime the value after mark was first found missing
+
+    ChangeWatermark(long gapTimeoutNanos) {
+        this.gapTimeoutNanos = gapTimeoutNanos;
+    }
+
+    /** Everything up to {@code seq} is known applied (a resync). */
+    void reset(long seq) {
+        mark = seq;
+        ahead.clear();
+    }
+
+    long mark() {
+        return mark;
+    }
+
+    /** Records {@code seq} as applied; returns the (possibly advanced) mark. */
+    long applied(long seq, long nowNanos) {
+        if (seq > mark) {
+            if (ahead.isEmpty()) gapSince = nowNanos;
+            ahead.add(seq);
+        }
+        return advance(nowNanos);
+    }
+
+    /** Skips a gap that has been open too long; call when idle. Returns the mark. */
+    long advance(long nowNanos) {
+        while (!ahead.isEmpty()) {
+            long next = ahead.first();
+            if (next != mark + 1 && nowNanos - gapSince < gapTimeoutNanos) break;
+            ahead.pollFirst();
+            mark = next;
+            gapSince = nowNanos;
+        }
+        return mark;
+    }
+}
@@ -0,0 +1,44 @@
+package dev.hvsawal.shortener.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Invalidation counters for a cache tier, so a load that read the source before an invalidation
+ * and finishes after it can tell, and not write its stale result back.
+ *
+ * <p>Usage: take {@link #stamp} before reading the source; after writing the result to the cache,
+ * remove it again if {@link #changedSince}. Invalidators must count first and then remove, so
+ * either the loader sees the new count or the removal comes after the loader's write.
+ *
+ * <p>Striped by id: an invalidation also drops concurrent loads of other ids in its stripe, which
+ * only costs them a later reload.
+ */
+final class Invalidations {
+
+    private static final int STRIPES = 1024; // power of two
+
+    private final AtomicLongArray stripes = new AtomicLongArray(STRIPES);
+    private final AtomicLong all = new AtomicLong();
+
+    long stamp(long id) {
+        // Both only grow, so the sum changes iff either does
+        return stripes.get(stripe(id)) + all.get();
+    }
+
+    boolean changedSince(long id, long stamp) {
+        return stamp(id) != stamp;
+    }
+
+    void invalidated(long id) {
+        stripes.incrementAndGet(stripe(id));
+    }
+
+    void invalidatedAll() {
+        all.incrementAndGet();
+    }
+
+    private static int stripe(long id) {
+        return (int) (id ^ (id >>> 32)) & (STRIPES - 1);
+    }
+}
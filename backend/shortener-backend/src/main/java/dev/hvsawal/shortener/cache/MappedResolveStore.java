@@ -0,0 +1,242 @@
+package dev.hvsawal.shortener.cache;
+
+import dev.hvsawal.shortener.service.ShortUrlService.Resolved;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed-size, memory-mapped table of {@link Resolved} records keyed by short_url id.
+ * Lives outside the Java heap (no GC cost for millions of entries) and in a file, so it survives restarts.
+ *
+ * <p>Layout: a 64-byte header, then {@code slots} fixed-size slots. Slots are grouped into
+ * {@value #WAYS}-way sets; an id hashes to one set and is only ever stored/looked up there
+ * (bounded open addressing, so a probe never crosses a lock stripe). A full set evicts its
+ * entry with the earliest expiry. Slot layout:
+ * <pre>
+ *   0  long  id (0 = empty)
+ *   8  long  expires_at, epoch millis
+ *  16  short url length (bytes)
+ *  18  byte  flags (bit 0 = preview)
+ *  20  ...   url, US-ASCII
+ * </pre>
+ * URLs that don't fit in a slot (or aren't ASCII) are simply not stored.
+ *
+ * <p>The file only holds what the database already has, so any mismatch with the header
+ * (version, geometry) just starts it over empty. The header also keeps a caller-defined
+ * {@linkplain #generation() generation} to tell whether the contents are still current.
+ */
+public final class MappedResolveStore implements AutoCloseable {
+
+    static final int WAYS = 8;
+
+    private static final long MAGIC = 0x53484F52544C3201L; // "SHORTL2" + version
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_HEADER_BYTES = 20;
+    private static final int SEGMENT_SHIFT = 30; // 1 GiB per mapping (MappedByteBuffer is int-indexed)
+    private static final int STRIPES = 1024;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] segments;
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final int slotShift;
+    private final int maxUrlBytes;
+    private final long setMask;
+
+    public MappedResolveStore(Path file, int slots, int slotBytes) throws IOException {
+        if (Integer.bitCount(slots) != 1 || slots < WAYS) {
+            throw new IllegalArgumentException("slots must be a power of two >= " + WAYS);
+        }
+        if (Integer.bitCount(slotBytes) != 1 || slotBytes < 64 || slotBytes > 4096) {
+            throw new IllegalArgumentException("slotBytes must be a power of two in [64, 4096]");
+        }
+        this.slotShift = Integer.numberOfTrailingZeros(slotBytes);
+        this.maxUrlBytes = slotBytes - SLOT_HEADER_BYTES;
+        this.setMask = (slots / WAYS) - 1;
+        for (int i = 0; i < STRIPES; i++) locks[i] = new ReentrantLock();
+
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long dataBytes = (long) slots << slotShift;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        boolean compatible = header.getLong(0) == MAGIC && header.getInt(8) == slots && header.getInt(12) == slotBytes;
+        if (!compatible) {
+            header.putLong(0, 0);
+            channel.truncate(HEADER_BYTES); // drop old contents; the data region comes back sparse (all zero)
+        }
+
+        long segmentBytes = 1L << SEGMENT_SHIFT;
+        int count = (int) ((dataBytes + segmentBytes - 1) >>> SEGMENT_SHIFT);
+        this.segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long offset = (long) i << SEGMENT_SHIFT;
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + offset, Math.min(segmentBytes, dataBytes - offset));
+        }
+
+        if (!compatible) {
+            header.putInt(8, slots);
+            header.putInt(12, slotBytes);
+            header.putLong(16, 0);
+            header.putLong(0, MAGIC);
+            header.force();
+        }
+    }
+
+    /** Caller-defined version of the contents (0 for a new file); persisted with the data. */
+    public long generation() {
+        return header.getLong(16);
+    }
+
+    public void generation(long generation) {
+        header.putLong(16, generation);
+        header.force();
+    }
+
+    /** @return the stored record, or {@code null} if absent or expired at {@code nowMillis} (expired ones are dropped) */
+    public Resolved get(long id, long nowMillis) {
+        if (id == 0) return null;
+        long set = setOf(id);
+        ReentrantLock lock = lockFor(set);
+        lock.lock();
+        try {
+            long first = set * WAYS;
+            for (int w = 0; w < WAYS; w++) {
+                long slot = first + w;
+                MappedByteBuffer seg = segment(slot);
+                int off = offset(slot);
+                if (seg.getLong(off) != id) continue;
+
+                long expiresAt = seg.getLong(off + 8);
+                if (expiresAt <= nowMillis) {
+                    seg.putLong(off, 0);
+                    return null;
+                }
+                int len = seg.getShort(off + 16) & 0xFFFF;
+                boolean preview = (seg.get(off + 18) & 1) != 0;
+                byte[] url = new byte[len];
+                seg.get(off + SLOT_HEADER_BYTES, url);
+                return new Resolved(id, new String(url, StandardCharsets.ISO_8859_1), preview, expiresAt);
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return {@code false} if the record can't be stored (URL too long for a slot, or not ASCII) */
+    public boolean put(Resolved r) {
+        String url = r.originalUrl();
+        if (r.id() == 0 || url.length() > maxUrlBytes) return false;
+        for (int i = 0; i < url.length(); i++) {
+            if (url.charAt(i) >= 0x80) return false;
+        }
+
+        long set = setOf(r.id());
+        ReentrantLock lock = lockFor(set);
+        lock.lock();
+        try {
+            long first = set * WAYS;
+            long target = -1;
+            long victim = first;
+            long victimExpiry = Long.MAX_VALUE;
+            for (int w = 0; w < WAYS; w++) {
+                long slot = first + w;
+                MappedByteBuffer seg = segment(slot);
+                int off = offset(slot);
+                long id = seg.getLong(off);
+                if (id == r.id()) {
+                    target = slot;
+                    break;
+                }
+                long expiry = id == 0 ? Long.MIN_VALUE : seg.getLong(off + 8);
+                if (expiry < victimExpiry) {
+                    victim = slot;
+                    victimExpiry = expiry;
+                }
+            }
+            if (target < 0) target = victim;
+
+            // id is cleared first and written last, so a crash mid-write leaves an empty slot, not a torn record
+            MappedByteBuffer seg = segment(target);
+            int off = offset(target);
+            seg.putLong(off, 0);
+            seg.putLong(off + 8, r.expiresAtEpochMillis());
+            seg.putShort(off + 16, (short) url.length());
+            seg.put(off + 18, (byte) (r.previewEnabled() ? 1 : 0));
+            for (int i = 0; i < url.length(); i++) {
+                seg.put(off + SLOT_HEADER_BYTES + i, (byte) url.charAt(i));
+            }
+            seg.putLong(off, r.id());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(long id) {
+        if (id == 0) return;
+        long set = setOf(id);
+        ReentrantLock lock = lockFor(set);
+        lock.lock();
+        try {
+            long first = set * WAYS;
+            for (int w = 0; w < WAYS; w++) {
+                long slot = first + w;
+                MappedByteBuffer seg = segment(slot);
+                int off = offset(slot);
+                if (seg.getLong(off) == id) seg.putLong(off, 0);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Empties every slot (one set at a time; concurrent gets/puts stay consistent per set). */
+    public void clear() {
+        for (long set = 0; set <= setMask; set++) {
+            ReentrantLock lock = lockFor(set);
+            lock.lock();
+            try {
+                long first = set * WAYS;
+                for (int w = 0; w < WAYS; w++) {
+                    long slot = first + w;
+                    segment(slot).putLong(offset(slot), 0);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /** Flushes dirty pages to disk and closes the file. */
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer seg : segments) seg.force();
+        channel.close();
+    }
+
+    private long setOf(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (h ^ (h >>> 32)) & setMask;
+    }
+
+    private ReentrantLock lockFor(long set) {
+        return locks[(int) (set & (STRIPES - 1))];
+    }
+
+    private MappedByteBuffer segment(long slot) {
+        return segments[(int) ((slot << slotShift) >>> SEGMENT_SHIFT)];
+    }
+
+    private int offset(long slot) {
+        return (int) ((slot << slotShift) & ((1L << SEGMENT_SHIFT) - 1));
+    }
+}
@@ -0,0 +1,191 @@
+package dev.hvsawal.shortener.cache;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.service.PreparedRedirect;
+import dev.hvsawal.shortener.service.ShortUrlService.Resolved;
+import dev.hvsawal.shortener.support.errors.CodeNotFoundException;
+import dev.hvsawal.shortener.support.errors.UrlExpiredException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * L1 resolve cache (Caffeine, on-heap), keyed by decoded id, so V1 and V2 codes of one link share an entry.
+ *
+ * <ul>
+ *   <li>Single-flight: on a miss only one caller per id runs the loader (and takes a DB permit);
+ *       concurrent callers for the same id wait on its result.</li>
+ *   <li>Each entry expires at its link's {@code expires_at}, never later.</li>
+ *   <li>Refresh-ahead: an entry read more than {@code resolve-ttl-seconds} after it was loaded is
+ *       reloaded in the background while callers keep getting the current value.</li>
+ *   <li>Serve-stale-on-error: if that reload fails (DB down, bulkhead full) the old value stays,
+ *       for at most {@code max-stale-seconds} after the last successful load.</li>
+ * </ul>
+ * An {@link #invalidate} during a load wins: the load's result is handed to its callers but not
+ * kept (see {@link Invalidations}); Caffeine already discards a refresh that raced with one.
+ * A reload that finds the link gone or expired drops the entry. Entries hold the
+ * {@link PreparedRedirect}, rendered once per load, so hits do no formatting at all.
+ */
+public final class ResolveCache {
+
+    public static final String NAME = "resolveById";
+
+    private static final Executor REFRESH_EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("resolve-refresh-", 0).factory());
+
+    private final LoadingCache<Long, Entry> cache;
+    private final ConcurrentHashMap<Long, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+    private final Invalidations invalidations = new Invalidations();
+    private final LongFunction<Resolved> loader;
+    private final Function<Resolved, PreparedRedirect> render;
+
+    private final Counter loads;
+    private final Counter coalesced;
+    private final Counter refreshFailed;
+
+    /**
+     * @param loader   cold load (may use cheaper tiers, throws the usual domain exceptions)
+     * @param reloader refresh load, straight from the source of truth
+     * @param render   builds the cached response from a loaded link
+     */
+    public ResolveCache(ShortenerConfigurationProperties.Cache props,
+                        LongFunction<Resolved> loader,
+                        LongFunction<Resolved> reloader,
+                        Function<Resolved, PreparedRedirect> render,
+                        MeterRegistry registry) {
+        this.loader = loader;
+        this.render = render;
+        long refreshSeconds = Math.max(1, props.resolveTtlSeconds());
+        long maxStaleNanos = TimeUnit.SECONDS.toNanos(Math.max(refreshSeconds, props.maxStaleSeconds()));
+
+        this.loads = Counter.builder("shortener_resolve_load_total")
+                .description("Cold loads run (one per id per miss, however many callers missed)")
+                .register(registry);
+        this.coalesced = Counter.builder("shortener_resolve_coalesced_total")
+                .description("Callers that waited on another caller's in-flight load instead of loading")
+                .register(registry);
+        this.refreshFailed = Counter.builder("shortener_resolve_refresh_failed_total")
+                .description("Background reloads that failed; the cached value was kept")
+                .register(registry);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(props.maxSize())
+                .refreshAfterWrite(Duration.ofSeconds(refreshSeconds))
+                .expireAfter(new UntilExpiresAt(maxStaleNanos))
+                .executor(REFRESH_EXECUTOR)
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public Entry load(Long id) {
+                        return entry(loader.apply(id));
+                    }
+
+                    @Override
+                    public Entry reload(Long id, Entry old) {
+                        try {
+                            return entry(reloader.apply(id));
+                        } catch (CodeNotFoundException | UrlExpiredException gone) {
+                            return null;
+                        } catch (RuntimeException e) {
+                            // Keeping the old entry (same loadedAtNanos) keeps its staleness bound
+                            refreshFailed.increment();
+                            return old;
+                        }
+                    }
+                });
+        CaffeineCacheMetrics.monitor(registry, cache, NAME);
+    }
+
+    /** @throws RuntimeException whatever the loader throws on a miss (waiters get the same exception) */
+    public PreparedRedirect get(long id) {
+        Entry e = cache.getIfPresent(id);
+        if (e != null) return e.redirect();
+
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> leader = inFlight.putIfAbsent(id, mine);
+        if (leader != null) {
+            coalesced.increment();
+            return await(leader).redirect();
+        }
+
+        try {
+            long stamp = invalidations.stamp(id);
+            // Re-check: the previous leader may have finished between getIfPresent and putIfAbsent
+            e = cache.getIfPresent(id);
+            if (e == null) {
+                loads.increment();
+                e = entry(loader.apply(id));
+                cache.put(id, e);
+                // Invalidated while we were loading: what we read may predate the change
+                if (invalidations.changedSince(id, stamp)) cache.invalidate(id);
+            }
+            mine.complete(e);
+            return e.redirect();
+        } catch (RuntimeException ex) {
+            mine.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(id, mine);
+        }
+    }
+
+    public void invalidate(long id) {
+        invalidations.invalidated(id);
+        inFlight.remove(id); // later callers start a fresh load instead of joining one that may be stale
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        invalidations.invalidatedAll();
+        inFlight.clear();
+        cache.invalidateAll();
+    }
+
+    private static Entry await(CompletableFuture<Entry> f) {
+        try {
+            return f.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) throw re;
+            throw ex;
+        }
+    }
+
+    private Entry entry(Resolved resolved) {
+        return new Entry(render.apply(resolved), System.nanoTime());
+    }
+
+    private record Entry(PreparedRedirect redirect, long loadedAtNanos) {}
+
+    /** Lifetime = min(last successful load + max stale, expires_at). */
+    private record UntilExpiresAt(long maxStaleNanos) implements Expiry<Long, Entry> {
+        @Override
+        public long expireAfterCreate(Long id, Entry e, long currentTime) {
+            long untilStale = e.loadedAtNanos() + maxStaleNanos - currentTime;
+            long untilExpired = TimeUnit.MILLISECONDS.toNanos(e.redirect().link().expiresAtEpochMillis() - System.currentTimeMillis());
+            return Math.max(0, Math.min(untilStale, untilExpired));
+        }
+
+        @Override
+        public long expireAfterUpdate(Long id, Entry e, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, e, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Long id, Entry e, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
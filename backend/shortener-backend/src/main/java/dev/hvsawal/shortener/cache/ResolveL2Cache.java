@@ -0,0 +1,107 @@
+package dev.hvsawal.shortener.cache;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.service.ShortUrlService.Resolved;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Optional second tier behind the Caffeine resolve cache: a {@link MappedResolveStore} keyed by id.
+ * Survives restarts, so a deploy doesn't turn into a miss storm on Postgres.
+ * When disabled (or the file can't be opened) every call is a cheap no-op miss. It is never
+ * opened without cache invalidation: nothing would tell a restarted node its file went stale.
+ */
+@Component
+public class ResolveL2Cache {
+
+    private static final Logger log = LoggerFactory.getLogger(ResolveL2Cache.class);
+
+    private final MappedResolveStore store;
+    private final Invalidations invalidations = new Invalidations();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ResolveL2Cache(ShortenerConfigurationProperties props, MeterRegistry registry) {
+        this.store = open(props.cache().l2(), props.cache().invalidation());
+        this.hits = Counter.builder("shortener_resolve_l2_hit_total").register(registry);
+        this.misses = Counter.builder("shortener_resolve_l2_miss_total").register(registry);
+    }
+
+    private static MappedResolveStore open(ShortenerConfigurationProperties.Cache.L2 l2,
+                                           ShortenerConfigurationProperties.Cache.Invalidation invalidation) {
+        if (l2 == null || !l2.enabled()) return null;
+        if (invalidation == null || !invalidation.enabled()) {
+            log.warn("Resolve L2 cache disabled: it needs shortener.cache.invalidation.enabled=true to stay in sync");
+            return null;
+        }
+        try {
+            MappedResolveStore s = new MappedResolveStore(Path.of(l2.path()), l2.slots(), l2.slotBytes());
+            log.info("Resolve L2 cache mapped at {} ({} slots x {} bytes)", l2.path(), l2.slots(), l2.slotBytes());
+            return s;
+        } catch (IOException | RuntimeException e) {
+            // Optional tier: run without it rather than fail startup
+            log.warn("Resolve L2 cache disabled, cannot map {}. {}", l2.path(), e.toString());
+            return null;
+        }
+    }
+
+    public Resolved get(long id) {
+        if (store == null) return null;
+        Resolved r = store.get(id, System.currentTimeMillis());
+        (r != null ? hits : misses).increment();
+        return r;
+    }
+
+    /** Take before reading {@code id} from the DB; pass to {@link #put}. */
+    public long stamp(long id) {
+        return invalidations.stamp(id);
+    }
+
+    /** Stores {@code r} unless {@code r.id()} was invalidated since {@code stamp} was taken. */
+    public void put(Resolved r, long stamp) {
+        if (store == null) return;
+        store.put(r);
+        if (invalidations.changedSince(r.id(), stamp)) store.remove(r.id());
+    }
+
+    public void invalidate(long id) {
+        invalidations.invalidated(id);
+        if (store != null) store.remove(id);
+    }
+
+    public void clear() {
+        invalidations.invalidatedAll();
+        if (store != null) store.clear();
+    }
+
+    public boolean enabled() {
+        return store != null;
+    }
+
+    /** Change-sequence value the contents are known to be consistent with (see ShortUrlChangeListener). */
+    public long generation() {
+        return store != null ? store.generation() : 0;
+    }
+
+    public void generation(long generation) {
+        if (store != null) store.generation(generation);
+    }
+
+    @PreDestroy
+    void close() {
+        if (store == null) return;
+        try {
+            store.close();
+        } catch (IOException e) {
+            log.warn("Resolve L2 cache close failed. {}", e.toString());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package dev.hvsawal.shortener.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.domain.ErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Short-lived memory of ids that resolved to "not found" or "expired", so repeated lookups of
+ * the same dead code (typically scanners) skip the bulkhead and the DB.
+ * Bounded; the TTL is what lets a row created on another node become visible here.
+ *
+ * <p>Inserts don't notify (see V5), so a code looked up here before another node created it keeps
+ * answering 404 for up to {@code ttl-seconds}. Codes are only handed out after their insert
+ * commits, so this takes a lookup of a code before it exists (a guess, or a client racing its own
+ * create through a different node); the creating node drops its own entry at once.
+ */
+@Component
+public class ResolveNegativeCache {
+
+    private final Cache<Long, ErrorCode> cache;
+    private final Counter hits;
+
+    public ResolveNegativeCache(ShortenerConfigurationProperties props, MeterRegistry registry) {
+        var neg = props.cache().negative();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, neg.maxSize()))
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, neg.ttlSeconds())))
+                .build();
+        this.hits = Counter.builder("shortener_resolve_negative_hit_total").register(registry);
+    }
+
+    /** @return {@link ErrorCode#CODE_NOT_FOUND}, {@link ErrorCode#URL_EXPIRED}, or {@code null} if nothing is cached */
+    public ErrorCode get(long id) {
+        ErrorCode code = cache.getIfPresent(id);
+        if (code != null) hits.increment();
+        return code;
+    }
+
+    public void markMissing(long id) {
+        cache.put(id, ErrorCode.CODE_NOT_FOUND);
+    }
+
+    public void markExpired(long id) {
+        cache.put(id, ErrorCode.URL_EXPIRED);
+    }
+
+    public void invalidate(long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,202 @@
+package dev.hvsawal.shortener.cache;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.service.ShortUrlService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * Keeps this node's resolve caches in step with short_url across the cluster: LISTENs on
+ * {@value #CHANNEL} (fed by update/delete triggers, see V5) and evicts the id in every
+ * {@code id:seq} payload.
+ *
+ * <p>Notifications sent while the connection was down are lost, so every (re)connect resyncs:
+ * LISTEN first, then flush the in-memory tiers, then compare short_url_change_seq with the
+ * generation stored in the L2 file and clear L2 only if something changed since. While connected,
+ * the stored generation follows the {@link ChangeWatermark} of applied payloads, so a restart
+ * only clears L2 if it missed a change.
+ *
+ * <p>Runs on its own platform thread with its own JDBC connection (not from the pool: it is held
+ * for the lifetime of the app and mostly blocked in a socket read).
+ */
+@Component
+public class ShortUrlChangeListener implements SmartLifecycle {
+
+    static final String CHANNEL = "short_url_changed";
+
+    private static final Logger log = LoggerFactory.getLogger(ShortUrlChangeListener.class);
+
+    private static final String CHANGE_SEQ =
+            "select case when is_called then last_value else 0 end from short_url_change_seq";
+
+    // A change_seq value missing this long belongs to a rolled-back transaction
+    private static final long GAP_TIMEOUT_NANOS = 60_000_000_000L;
+
+    private final DataSourceProperties dataSource;
+    private final ShortUrlService service;
+    private final ResolveL2Cache l2;
+    private final boolean enabled;
+    private final int pollMs;
+    private final int maxBackoffMs;
+
+    private final Counter evicted;
+    private final Counter resyncs;
+
+    private final ChangeWatermark watermark = new ChangeWatermark(GAP_TIMEOUT_NANOS);
+
+    private volatile boolean running;
+    private volatile Thread thread;
+    private volatile Connection connection;
+
+    public ShortUrlChangeListener(DataSourceProperties dataSource, ShortUrlService service, ResolveL2Cache l2,
+                                  ShortenerConfigurationProperties props, MeterRegistry registry) {
+        this.dataSource = dataSource;
+        this.service = service;
+        this.l2 = l2;
+        var inv = props.cache().invalidation();
+        this.enabled = inv != null && inv.enabled();
+        this.pollMs = inv != null ? Math.max(100, inv.pollMs()) : 10_000;
+        this.maxBackoffMs = inv != null ? Math.max(100, inv.maxReconnectBackoffMs()) : 30_000;
+        this.evicted = Counter.builder("shortener_cache_invalidation_evicted_total").register(registry);
+        this.resyncs = Counter.builder("shortener_cache_invalidation_resync_total").register(registry);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        thread = Thread.ofPlatform().daemon().name("short-url-change-listener").start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        closeQuietly(connection); // unblocks getNotifications
+        Thread t = thread;
+        if (t != null) t.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void run() {
+        long backoffMs = 100;
+        while (running) {
+            try (Connection c = connect()) {
+                connection = c;
+                try (Statement st = c.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                resync(c);
+                backoffMs = 100;
+                listen(c);
+            } catch (SQLException | RuntimeException e) {
+                if (!running) break;
+                log.warn("Cache invalidation listener disconnected; retrying in {} ms. {}", backoffMs, e.toString());
+            } finally {
+                connection = null;
+            }
+            if (!running) break;
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoffMs = Math.min(maxBackoffMs, backoffMs * 2);
+        }
+    }
+
+    private void listen(Connection c) throws SQLException {
+        PGConnection pg = c.unwrap(PGConnection.class);
+        while (running) {
+            PGNotification[] batch = pg.getNotifications(pollMs);
+            if (batch == null || batch.length == 0) {
+                // idle: make sure the socket is still alive (a dead peer would otherwise block us forever)
+                try (Statement st = c.createStatement()) {
+                    st.execute("select 1");
+                }
+                storeGeneration(watermark.advance(System.nanoTime()));
+                continue;
+            }
+            for (PGNotification n : batch) {
+                if (CHANNEL.equals(n.getName())) apply(n.getParameter());
+            }
+        }
+    }
+
+    /** Full-flush fallback: anything may have changed while we weren't listening. */
+    private void resync(Connection c) throws SQLException {
+        service.evictAllCached();
+        resyncs.increment();
+
+        if (!l2.enabled()) return;
+        long current;
+        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(CHANGE_SEQ)) {
+            rs.next();
+            current = rs.getLong(1);
+        }
+        if (l2.generation() != current) {
+            log.info("short_url changed since the L2 cache was last in sync (generation {} -> {}); clearing it",
+                    l2.generation(), current);
+            l2.clear();
+            l2.generation(current);
+        }
+        watermark.reset(current);
+    }
+
+    /** Evicts the id in an {@code id:seq} payload, then lets the L2 generation catch up to seq. */
+    private void apply(String payload) {
+        int colon = payload.indexOf(':');
+        long id;
+        long seq;
+        try {
+            id = Long.parseLong(payload, 0, colon < 0 ? payload.length() : colon, 10);
+            seq = colon < 0 ? -1 : Long.parseLong(payload, colon + 1, payload.length(), 10);
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed {} payload: {}", CHANNEL, payload);
+            return;
+        }
+        service.evictCached(id);
+        evicted.increment();
+        if (seq > 0) storeGeneration(watermark.applied(seq, System.nanoTime()));
+    }
+
+    private void storeGeneration(long mark) {
+        if (l2.enabled() && mark > l2.generation()) l2.generation(mark);
+    }
+
+    private Connection connect() throws SQLException {
+        Properties p = new Properties();
+        if (dataSource.determineUsername() != null) p.setProperty("user", dataSource.determineUsername());
+        if (dataSource.determinePassword() != null) p.setProperty("password", dataSource.determinePassword());
+        p.setProperty("ApplicationName", "shortener-cache-listener");
+        p.setProperty("tcpKeepAlive", "true");
+        return DriverManager.getConnection(dataSource.determineUrl(), p);
+    }
+
+    private static void closeQuietly(Connection c) {
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (SQLException ignored) {
+            // shutting down
+        }
+    }
+}
@@ -10,13 +10,44 @@ public record ShortenerConfigurationProperties(
         Cache cache,
         Bulkhead bulkhead,
         Ratelimit ratelimit,
-        Clickcount clickcount
+        Clickcount clickcount,
+        Batch batch,
+        Redirect redirect
 ) {
     public record Scramble(String key, int rounds, int minLen) {}
-    public record Cache(int resolveTtlSeconds, int maxSize) {}
+    public record Cache(int resolveTtlSeconds, int maxSize, int maxStaleSeconds, L2 l2, Negative negative,
+                        Invalidation invalidation) {
+        /** Optional memory-mapped tier behind Caffeine; see ResolveL2Cache. */
+        public record L2(boolean enabled, String path, int slots, int slotBytes) {}
+        /** Not-found/expired ids (ResolveNegativeCache) and the allocated-id filter (ShortUrlIdRange). */
+        public record Negative(int ttlSeconds, int maxSize, int idRangeRefreshMs) {}
+        /** LISTEN/NOTIFY eviction across nodes; see ShortUrlChangeListener. */
+        public record Invalidation(boolean enabled, int pollMs, int maxReconnectBackoffMs) {}
+    }
     public record Bulkhead(int dbPermits, AcquireTimeoutMs acquireTimeoutMs) {
         public record AcquireTimeoutMs(int shorten, int resolve) {}
     }
-    public record Ratelimit(int shortenPerMinute) {}
-    public record Clickcount(boolean enabled, int flushIntervalMs, int maxBufferEntries) {}
+    /** Create budget: global bucket plus optional per-client buckets; see ShortenRateLimiter. */
+    public record Ratelimit(int shortenPerMinute, int burst, PerClient perClient) {
+        public record PerClient(boolean enabled, int shortenPerMinute, int burst, int maxClients, String apiKeyHeader) {}
+    }
+    public record Clickcount(boolean enabled, int flushIntervalMs, int maxBufferEntries, double flushAtOccupancy,
+                             int flushChunkSize, int flushMaxAttempts, Db db, Journal journal, Buckets buckets,
+                             Trending trending, Visitors visitors, Ring ring) {
+        /** Analytics connection pool and its bulkhead; see AnalyticsDatabase. */
+        public record Db(int poolSize, int connectionTimeoutMs, int acquireTimeoutMs) {}
+        /** Durable click log replayed after crashes; see ClickJournal. */
+        public record Journal(boolean enabled, String dir, int segmentBytes, int fsyncIntervalMs) {}
+        /** Per-minute/hour rollups in click_bucket; see ClickBucketPartitions. */
+        public record Buckets(boolean enabled, int retentionMonths, int monthsAhead) {}
+        /** Per-node sliding-window top-K; see TrendingClicks. */
+        public record Trending(boolean enabled, int capacityPerMinute, int maxWindowMinutes) {}
+        /** Per-link HyperLogLog of (IP, User-Agent); see VisitorSketches. */
+        public record Visitors(boolean enabled, int flushIntervalMs, int maxPendingLinks, int flushChunkSize) {}
+        /** Hand-off from request threads to analytics consumers; see ClickEvents. */
+        public record Ring(boolean enabled, int capacity, int consumers, String overflow, int sampleRate, int maxBlockMs) {}
+    }
+    public record Batch(int chunkSize) {}
+    /** Status and cache headers for /{code}; see HttpCachePolicy. */
+    public record Redirect(int status, int maxAgeSeconds, int sharedMaxAgeSeconds, String surrogateKeyHeader) {}
 }
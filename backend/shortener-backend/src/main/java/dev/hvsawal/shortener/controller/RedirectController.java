@@ -1,18 +1,19 @@
 package dev.hvsawal.shortener.controller;
 
-import dev.hvsawal.shortener.analytics.ClickTracker;
+import dev.hvsawal.shortener.analytics.ClickEvents;
+import dev.hvsawal.shortener.service.PreparedRedirect;
 import dev.hvsawal.shortener.service.ShortUrlService;
+import dev.hvsawal.shortener.support.http.HttpCachePolicy;
 import io.swagger.v3.oas.annotations.Hidden;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
-import java.net.URI;
+import java.io.IOException;
 
 @RestController
 @RequiredArgsConstructor
@@ -20,52 +21,39 @@ import java.net.URI;
 public class RedirectController {
 
     private final ShortUrlService service;
-    private final ClickTracker clickTracker;
-
+    private final ClickEvents clickEvents;
+    private final HttpCachePolicy cachePolicy;
+
+    /**
+     * Writes the cached {@link PreparedRedirect} straight to the servlet response: no
+     * ResponseEntity, URI parsing or message converter on the hot path. The remote address is the
+     * visitor's: X-Forwarded-For from trusted proxies is applied before we see the request.
+     */
     @GetMapping("/{code}")
-    public ResponseEntity<?> redirect(@PathVariable String code) {
-        var resolved = service.resolveForRedirect(code);
-        clickTracker.record(resolved.id());
-
-        if (resolved.previewEnabled()) {
-            String html = interstitialHtml(resolved.originalUrl());
-            return ResponseEntity.ok()
-                    .contentType(MediaType.TEXT_HTML)
-                    .body(html);
+    public void redirect(@PathVariable String code, ServletWebRequest request) throws IOException {
+        PreparedRedirect r = service.resolveForRedirect(code);
+        clickEvents.record(r.link().id(), request.getRequest().getRemoteAddr(), request.getHeader(HttpHeaders.USER_AGENT));
+
+        HttpServletResponse response = request.getResponse();
+        String cacheControl = cachePolicy.cacheControl(r.link().expiresAtEpochMillis());
+        if (cacheControl != null) response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        String surrogateKeyHeader = cachePolicy.surrogateKeyHeader();
+        if (surrogateKeyHeader != null) response.setHeader(surrogateKeyHeader, r.surrogateKey());
+
+        if (!r.preview()) {
+            response.setStatus(cachePolicy.redirectStatus());
+            response.setHeader(HttpHeaders.LOCATION, r.location());
+            return;
         }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setLocation(URI.create(resolved.originalUrl()));
-        return new ResponseEntity<>(headers, HttpStatus.FOUND);
-    }
+        // Sets 304 and the ETag header when the client's copy is current
+        if (request.checkNotModified(r.etag())) return;
 
-    private static String interstitialHtml(String target) {
-        String escaped = target.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
-        return """
-        <!doctype html>
-        <html lang="en">
-          <head>
-            <meta charset="utf-8"/>
-            <meta name="viewport" content="width=device-width,initial-scale=1"/>
-            <title>Leaving this site</title>
-            <style>
-              body{font-family:system-ui,-apple-system,Segoe UI,Roboto,Arial,sans-serif;max-width:720px;margin:48px auto;padding:0 16px}
-              .card{border:1px solid #e5e7eb;border-radius:14px;padding:18px}
-              .muted{color:#6b7280;font-size:14px}
-              a.btn{display:inline-block;margin-top:12px;padding:10px 14px;border-radius:12px;background:#111827;color:#fff;text-decoration:none}
-              code{word-break:break-all}
-            </style>
-          </head>
-          <body>
-            <h2>You are leaving this site</h2>
-            <div class="card">
-              <div class="muted">Destination</div>
-              <code>%s</code>
-              <br/>
-              <a class="btn" href="%s" rel="noreferrer noopener">Continue</a>
-            </div>
-          </body>
-        </html>
-        """.formatted(escaped, escaped);
+        byte[] body = r.body();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(PreparedRedirect.HTML_CONTENT_TYPE);
+        response.setContentLength(body.length);
+        response.setHeader(HttpHeaders.ETAG, r.etag());
+        response.getOutputStream().write(body);
     }
 }
@@ -1,21 +1,37 @@
 package dev.hvsawal.shortener.controller;
 
+import dev.hvsawal.shortener.domain.ClickGranularity;
+import dev.hvsawal.shortener.dto.ClickSeriesResponse;
+import dev.hvsawal.shortener.dto.ShortenBatchRequest;
+import dev.hvsawal.shortener.dto.ShortenBatchResponse;
 import dev.hvsawal.shortener.dto.ShortenRequest;
 import dev.hvsawal.shortener.dto.ShortenUrlResponse;
 import dev.hvsawal.shortener.service.ShortUrlService;
+import dev.hvsawal.shortener.support.errors.InvalidRequestException;
+import dev.hvsawal.shortener.support.http.ETags;
+import dev.hvsawal.shortener.support.http.HttpCachePolicy;
+import dev.hvsawal.shortener.support.resilience.ShortenRateLimiter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/v1/shorten")
@@ -23,6 +39,8 @@ import org.springframework.web.bind.annotation.RestController;
 public class ShortenController {
 
     private final ShortUrlService service;
+    private final HttpCachePolicy cachePolicy;
+    private final ShortenRateLimiter rateLimiter;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -31,18 +49,73 @@ public class ShortenController {
             description = "Creates (or returns an existing) shortened URL for the given long URL. " +
                     "Optionally enables preview mode if `preview=true`."
     )
-    public ShortenUrlResponse create(@Valid @RequestBody ShortenRequest req) {
+    public ShortenUrlResponse create(@Valid @RequestBody ShortenRequest req, HttpServletRequest request) {
         boolean preview = req.preview() != null && req.preview();
-        return service.create(req.url(), preview);
+        return service.create(req.url(), preview, rateLimiter.clientKey(request));
+    }
+
+    @PostMapping("/batch")
+    @Operation(
+            summary = "Create short URLs in bulk",
+            description = "Creates (or returns existing) short URLs for up to " + ShortenBatchRequest.MAX_ITEMS +
+                    " long URLs, or the rate-limit burst if that is lower (120 by default). Results are returned in request order; invalid items carry an error instead of a result, " +
+                    "and so do items not saved because the database failed partway (`SERVICE_UNAVAILABLE`, safe to resend). " +
+                    "Each item counts against the caller's and the global rate limit; a batch above the burst gets " +
+                    "400 `INVALID_REQUEST` stating the limit."
+    )
+    public ShortenBatchResponse createBatch(@Valid @RequestBody ShortenBatchRequest req, HttpServletRequest request) {
+        return service.createBatch(req.items(), rateLimiter.clientKey(request));
     }
 
     @GetMapping("/{code}")
     @Operation(
             summary = "Get metadata for a short code",
-            description = "Returns metadata for an existing short code (original URL, timestamps, click count, etc.)."
+            description = "Returns metadata for an existing short code (original URL, timestamps, click count, " +
+                    "estimated unique visitors by IP + User-Agent, etc.). " +
+                    "Carries a strong ETag; send it back in `If-None-Match` to get `304 Not Modified` while nothing changed."
     )
-    public ShortenUrlResponse getMetadata(@PathVariable String code) {
-        return service.getMetadata(code);
+    public ResponseEntity<ShortenUrlResponse> getMetadata(@PathVariable String code) {
+        ShortenUrlResponse m = service.getMetadata(code);
+        String etag = ETags.strong(m.code(), m.shortUrl(), m.originalUrl(), m.previewEnabled(),
+                m.createdAt(), m.expiresAt(), m.clickCount(), m.uniqueVisitors());
+
+        // Click counts move, so caches must revalidate; ResponseEntity answers If-None-Match with 304
+        var response = ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache());
+        if (cachePolicy.surrogateKeyHeader() != null) {
+            response.header(cachePolicy.surrogateKeyHeader(), HttpCachePolicy.surrogateKey(m.code()));
+        }
+        return response.body(m);
     }
 
+    @GetMapping("/{code}/clicks")
+    @Operation(
+            summary = "Get clicks over time for a short code",
+            description = "Returns clicks per `minute` or `hour` (default) bucket in `[from, to)`, one point per bucket " +
+                    "including empty ones. `from`/`to` are ISO-8601 timestamps with offset and are widened to whole buckets; " +
+                    "they default to the last 24 hours (last hour for minutes). At most 7 days of minutes or 366 days of hours. " +
+                    "Served from rollups written by the click flusher, so the newest few seconds may be missing."
+    )
+    public ClickSeriesResponse getClicks(@PathVariable String code,
+                                         @RequestParam(required = false) String from,
+                                         @RequestParam(required = false) String to,
+                                         @RequestParam(defaultValue = "hour") String granularity) {
+        return service.getClickSeries(code, parseInstant("from", from), parseInstant("to", to),
+                parseGranularity(granularity));
+    }
+
+    private static Instant parseInstant(String name, String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new InvalidRequestException("'" + name + "' must be an ISO-8601 timestamp with offset, e.g. 2025-01-31T10:00:00Z");
+        }
+    }
+
+    private static ClickGranularity parseGranularity(String value) {
+        for (ClickGranularity g : ClickGranularity.values()) {
+            if (g.name().equalsIgnoreCase(value)) return g;
+        }
+        throw new InvalidRequestException("'granularity' must be 'minute' or 'hour'");
+    }
 }
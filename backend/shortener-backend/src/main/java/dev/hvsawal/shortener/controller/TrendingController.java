@@ -0,0 +1,65 @@
+package dev.hvsawal.shortener.controller;
+
+import dev.hvsawal.shortener.analytics.TrendingClicks;
+import dev.hvsawal.shortener.core.CodeCodec;
+import dev.hvsawal.shortener.dto.TrendingResponse;
+import dev.hvsawal.shortener.support.errors.InvalidRequestException;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/trending")
+@Tag(name = "Trending", description = "Most clicked links right now.")
+public class TrendingController {
+
+    static final int MAX_K = 1000;
+    private static final Pattern WINDOW = Pattern.compile("(\\d{1,4})([mh])");
+
+    private final TrendingClicks trending;
+    private final CodeCodec codec;
+
+    @GetMapping
+    @Operation(
+            summary = "Top-K links by recent clicks",
+            description = "Returns up to `k` (max " + MAX_K + ") links with the most clicks over the last `window` " +
+                    "(`<n>m` or `<n>h`, whole minutes, up to `max-window-minutes`), as counted by the answering node. " +
+                    "Counts come from a heavy-hitters sketch: `clicks` is an upper bound, off by at most `maxError`."
+    )
+    public TrendingResponse top(@RequestParam(defaultValue = "5m") String window,
+                                @RequestParam(defaultValue = "100") int k) {
+        int minutes = parseWindow(window);
+        if (k < 1 || k > MAX_K) {
+            throw new InvalidRequestException("'k' must be between 1 and " + MAX_K);
+        }
+
+        long now = System.currentTimeMillis();
+        var items = trending.top(minutes, k, now).stream()
+                .map(h -> new TrendingResponse.Item(codec.encodeId(h.id()), h.clicks(), h.maxError()))
+                .toList();
+        long end = (Math.floorDiv(now, 60_000L) + 1) * 60_000L;
+        return new TrendingResponse(window,
+                Instant.ofEpochMilli(end - minutes * 60_000L).atOffset(ZoneOffset.UTC),
+                Instant.ofEpochMilli(end).atOffset(ZoneOffset.UTC),
+                items);
+    }
+
+    private int parseWindow(String window) {
+        Matcher m = WINDOW.matcher(window);
+        int minutes = m.matches() ? Integer.parseInt(m.group(1)) * (m.group(2).equals("h") ? 60 : 1) : 0;
+        if (minutes < 1 || minutes > trending.maxWindowMinutes()) {
+            throw new InvalidRequestException("'window' must be like 5m or 1h, at most " + trending.maxWindowMinutes() + "m");
+        }
+        return minutes;
+    }
+}
@@ -5,12 +5,39 @@ import java.math.BigInteger;
 public final class Affine62 {
     private Affine62() {}
 
-    public static BigInteger permute(BigInteger x, BigInteger a, BigInteger b, BigInteger m) {
-        return a.multiply(x).add(b).mod(m);
+    /** y = (a*x + b) mod m. Requires 0 <= x, a, b < m < 2^63. */
+    public static long permute(long x, long a, long b, long m) {
+        long ax = mulMod(a, x, m);
+        // ax + b < 2m < 2^64, so one unsigned compare-and-subtract reduces it
+        long y = ax + b;
+        return Long.compareUnsigned(y, m) >= 0 ? y - m : y;
     }
 
-    public static BigInteger invert(BigInteger y, BigInteger aInv, BigInteger b, BigInteger m) {
-        return aInv.multiply(y.subtract(b)).mod(m);
+    /** x = aInv*(y - b) mod m. Requires 0 <= aInv, b < m < 2^63. */
+    public static long invert(long y, long aInv, long b, long m) {
+        return mulMod(aInv, Math.floorMod(y - b, m), m);
+    }
+
+    /**
+     * (a*b) mod m for 0 <= a, b < m < 2^63, using the 128-bit product.
+     * The high word is folded back in chunks as wide as the headroom above m allows,
+     * so 62^10 (~2^59.5) needs at most 16 unsigned remainders and small lengths need 2-3.
+     */
+    static long mulMod(long a, long b, long m) {
+        long hi = Math.multiplyHigh(a, b); // a, b >= 0 => signed high word == unsigned high word
+        long lo = a * b;
+        if (hi == 0 && lo >= 0) return lo % m;
+
+        int step = Long.numberOfLeadingZeros(m);
+        long r = hi % m;
+        int remaining = Long.SIZE;
+        while (remaining > 0) {
+            int s = Math.min(step, remaining);
+            remaining -= s;
+            r = (r << s) | ((lo >>> remaining) & ((1L << s) - 1));
+            r = Long.remainderUnsigned(r, m);
+        }
+        return r;
     }
 
     /** gcd(a, 62^L)=1 required for invertibility => a not divisible by 2 or 31. */
@@ -29,4 +56,4 @@ public final class Affine62 {
         if (a.signum() == 0) a = BigInteger.ONE;
         return a;
     }
-}
\ No newline at end of file
+}
@@ -1,59 +1,141 @@
 package dev.hvsawal.shortener.core;
 
-import java.math.BigInteger;
-
 public final class Base62 {
     private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
     private static final int BASE = 62;
-    private static final BigInteger BI_BASE = BigInteger.valueOf(BASE);
-    private static final BigInteger BI_MAX_UNSIGNED = BigInteger.ONE.shiftLeft(64);
+
+    /** Digits needed for the largest unsigned 64-bit value (62^10 < 2^64 <= 62^11). */
+    public static final int MAX_LENGTH = 11;
+
+    private static final byte[] DIGITS = new byte[128];
+    private static final long[] POW62 = new long[MAX_LENGTH]; // 62^0 .. 62^10, all < 2^63
+    private static final long MAX_DIV = Long.divideUnsigned(-1L, BASE);
+    private static final int MAX_REM = (int) Long.remainderUnsigned(-1L, BASE);
+
+    static {
+        java.util.Arrays.fill(DIGITS, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) DIGITS[ALPHABET[i]] = (byte) i;
+
+        POW62[0] = 1;
+        for (int i = 1; i < POW62.length; i++) POW62[i] = POW62[i - 1] * BASE;
+    }
 
     private Base62() {}
 
     public static String encode(long value) {
-        if (value == 0L) return "0";
+        char[] buf = new char[MAX_LENGTH];
+        int n = encodeInto(value, buf, 0);
+        return new String(buf, 0, n);
+    }
+
+    public static String encodeFixed(long value, int length) {
+        char[] buf = new char[Math.max(length, MAX_LENGTH)];
+        int n = encodeFixedInto(value, length, buf, 0);
+        return new String(buf, 0, n);
+    }
+
+    /** Number of digits {@link #encode} produces for this (unsigned) value. */
+    public static int encodedLength(long value) {
+        if (value < 0) return MAX_LENGTH; // unsigned >= 2^63 > 62^10
+        for (int n = 1; n < MAX_LENGTH; n++) {
+            if (value < POW62[n]) return n;
+        }
+        return MAX_LENGTH;
+    }
+
+    /**
+     * Writes the digits of {@code value} (unsigned) into {@code dst} starting at {@code offset}.
+     *
+     * @return number of chars written (1..{@link #MAX_LENGTH})
+     */
+    public static int encodeInto(long value, char[] dst, int offset) {
+        return encodeFixedInto(value, 1, dst, offset);
+    }
 
-        StringBuilder sb = new StringBuilder(11);
+    /**
+     * Like {@link #encodeInto(long, char[], int)} but left-pads with '0' up to {@code length}.
+     * Values that need more than {@code length} digits are written unpadded, as {@link #encodeFixed} does.
+     */
+    public static int encodeFixedInto(long value, int length, char[] dst, int offset) {
+        int n = Math.max(length, encodedLength(value));
+        int i = offset + n;
         long v = value;
-        while (Long.compareUnsigned(v, 0L) != 0) {
-            int rem = (int) Long.remainderUnsigned(v, BASE);
-            sb.append(ALPHABET[rem]);
+        if (v < 0) {
+            // only the first step needs unsigned division; afterwards v < 2^63
+            dst[--i] = ALPHABET[(int) Long.remainderUnsigned(v, BASE)];
             v = Long.divideUnsigned(v, BASE);
         }
-        return sb.reverse().toString();
+        do {
+            dst[--i] = ALPHABET[(int) (v % BASE)];
+            v /= BASE;
+        } while (v != 0);
+        while (i > offset) dst[--i] = ALPHABET[0];
+        return n;
     }
 
-    public static String encodeFixed(long value, int length) {
-        String s = encode(value);
-        if (s.length() > length) return s; // should not happen if value < 62^length
-        StringBuilder sb = new StringBuilder(length);
-        for (int i = s.length(); i < length; i++) sb.append(ALPHABET[0]); // left pad with '0'-equivalent
-        sb.append(s);
-        return sb.toString();
+    /** ASCII variant of {@link #encodeInto(long, char[], int)} for writing straight into byte buffers. */
+    public static int encodeInto(long value, byte[] dst, int offset) {
+        return encodeFixedInto(value, 1, dst, offset);
+    }
+
+    /** ASCII variant of {@link #encodeFixedInto(long, int, char[], int)}. */
+    public static int encodeFixedInto(long value, int length, byte[] dst, int offset) {
+        int n = Math.max(length, encodedLength(value));
+        int i = offset + n;
+        long v = value;
+        if (v < 0) {
+            dst[--i] = (byte) ALPHABET[(int) Long.remainderUnsigned(v, BASE)];
+            v = Long.divideUnsigned(v, BASE);
+        }
+        do {
+            dst[--i] = (byte) ALPHABET[(int) (v % BASE)];
+            v /= BASE;
+        } while (v != 0);
+        while (i > offset) dst[--i] = (byte) ALPHABET[0];
+        return n;
     }
 
     public static long decode(String str) {
         if (str == null || str.isBlank()) throw new IllegalArgumentException("str is blank");
+        return decode(str, 0, str.length());
+    }
 
-        BigInteger result = BigInteger.ZERO;
-        for (int i = 0; i < str.length(); i++) {
-            int digit = indexOf(str.charAt(i));
-            if (digit < 0) throw new IllegalArgumentException("invalid base62 char: " + str.charAt(i));
-            result = result.multiply(BI_BASE).add(BigInteger.valueOf(digit));
+    /**
+     * Decodes {@code src[start, end)} without copying it. Leading zeros are allowed;
+     * the result is an unsigned 64-bit value (two's complement is fine for our usage).
+     */
+    public static long decode(CharSequence src, int start, int end) {
+        if (start >= end) throw new IllegalArgumentException("str is blank");
+
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            result = accumulate(result, digitOf(src.charAt(i)));
         }
+        return result;
+    }
 
-        // Ensure it fits into unsigned 64-bit range
-        if (result.signum() < 0 || result.compareTo(BI_MAX_UNSIGNED) >= 0) {
-            throw new IllegalArgumentException("base62 value out of unsigned 64-bit range");
+    /** Decodes {@code length} ASCII bytes of {@code src} starting at {@code offset}, e.g. straight from a request line. */
+    public static long decode(byte[] src, int offset, int length) {
+        if (length <= 0) throw new IllegalArgumentException("str is blank");
+
+        long result = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            result = accumulate(result, digitOf((char) (src[i] & 0xFF)));
         }
+        return result;
+    }
 
-        return result.longValue(); // two's complement is fine for our usage
+    private static long accumulate(long result, int digit) {
+        // result * 62 + digit must stay within the unsigned 64-bit range
+        if (Long.compareUnsigned(result, MAX_DIV) > 0 || (result == MAX_DIV && digit > MAX_REM)) {
+            throw new IllegalArgumentException("base62 value out of unsigned 64-bit range");
+        }
+        return result * BASE + digit;
     }
 
-    private static int indexOf(char c) {
-        if (c >= '0' && c <= '9') return c - '0';
-        if (c >= 'A' && c <= 'Z') return 10 + (c - 'A');
-        if (c >= 'a' && c <= 'z') return 36 + (c - 'a');
-        return -1;
+    private static int digitOf(char c) {
+        int digit = c < 128 ? DIGITS[c] : -1;
+        if (digit < 0) throw new IllegalArgumentException("invalid base62 char: " + c);
+        return digit;
     }
-}
\ No newline at end of file
+}
@@ -9,12 +9,16 @@ import java.security.MessageDigest;
 public final class CodeCodec {
     private static final BigInteger BI_62 = BigInteger.valueOf(62);
 
+    /** 62^10 (~8.4e17) is the largest power of 62 that fits in a signed long. */
+    static final int V2_MAX_SUPPORTED_LENGTH = 10;
+
     // V1
     private final Feistel64 feistel;
     private final int minLenV1;
 
     // V2
     private final CodeV2Props v2;
+    private final V2Length[] v2ByLength; // indexed by L, null outside [minLength..maxLength]
 
     /**
      * Backwards-compatible constructor for V1-only usage (existing call sites).
@@ -24,6 +28,7 @@ public final class CodeCodec {
         this.feistel = new Feistel64(secretKey, rounds);
         this.minLenV1 = Math.max(1, minLen);
         this.v2 = new CodeV2Props(false, "_", 5, 10, Long.MAX_VALUE, secretKey);
+        this.v2ByLength = new V2Length[0];
     }
 
     /**
@@ -34,6 +39,7 @@ public final class CodeCodec {
         this.feistel = new Feistel64(secretKey, rounds);
         this.minLenV1 = Math.max(1, minLenV1);
         this.v2 = v2Props;
+        this.v2ByLength = v2Props.enabled() ? buildV2Table(v2Props) : new V2Length[0];
     }
 
     public String encodeId(long id) {
@@ -49,25 +55,35 @@ public final class CodeCodec {
 
     public long decodeToId(String code) {
         if (code == null || code.isBlank()) throw new IllegalArgumentException("code is blank");
+        return decodeToId(code, 0, code.length());
+    }
 
-        if (v2.enabled() && code.startsWith(v2.prefix())) {
-            return decodeV2(code);
+    /**
+     * Decodes {@code src[start, end)} in place, e.g. a slice of the raw request path,
+     * without materializing the code as its own String.
+     */
+    public long decodeToId(CharSequence src, int start, int end) {
+        if (start >= end) throw new IllegalArgumentException("code is blank");
+
+        if (v2.enabled() && hasV2Prefix(src, start, end)) {
+            return decodeV2(src, start + v2.prefix().length(), end);
         }
 
-        return decodeV1(code);
+        return decodeV1(src, start, end);
     }
 
     // ---------------- V1 (unchanged) ----------------
 
     private String encodeV1(long id) {
         long publicId = feistel.scramble(id);
-        String code = Base62.encode(publicId);
-        return leftPad(code, minLenV1);
+        char[] buf = new char[Math.max(minLenV1, Base62.MAX_LENGTH)];
+        int n = Base62.encodeFixedInto(publicId, minLenV1, buf, 0);
+        return new String(buf, 0, n);
     }
 
-    private long decodeV1(String code) {
-        String trimmed = trimLeadingZeros(code);
-        long publicId = Base62.decode(trimmed);
+    private long decodeV1(CharSequence src, int start, int end) {
+        // leading '0' padding decodes to the same value, no trimming needed
+        long publicId = Base62.decode(src, start, end);
         long id = feistel.unscramble(publicId);
         if (id <= 0) throw new IllegalArgumentException("decoded id invalid");
         return id;
@@ -76,57 +92,77 @@ public final class CodeCodec {
     // ---------------- V2 (short, variable length) ----------------
 
     private String encodeV2(long id) {
-        int L = pickLengthUnsigned(id, v2.minLength(), v2.maxLength());
-        if (L < 0) {
+        V2Length p = pickLength(id);
+        if (p == null) {
             // Safety fallback: if id exceeds capacity of maxLength
             return encodeV1(id);
         }
 
-        BigInteger m = pow62(L);
-        BigInteger a = deriveA(L, m, v2.key());
-        BigInteger b = deriveB(L, m, v2.key());
-
-        BigInteger x = unsignedLongToBigInt(id);
-        BigInteger y = Affine62.permute(x, a, b, m);
-
-        // y < 62^L <= 62^10 (~8.39e17), fits in signed long safely.
-        long yLong = y.longValueExact();
+        long y = Affine62.permute(id, p.a(), p.b(), p.m());
 
-        String body = Base62.encodeFixed(yLong, L);
-        return v2.prefix() + body;
+        String prefix = v2.prefix();
+        char[] buf = new char[prefix.length() + p.length()];
+        prefix.getChars(0, prefix.length(), buf, 0);
+        Base62.encodeFixedInto(y, p.length(), buf, prefix.length());
+        return new String(buf);
     }
 
-    private long decodeV2(String code) {
-        String body = code.substring(v2.prefix().length());
-        int L = body.length();
+    private long decodeV2(CharSequence src, int bodyStart, int end) {
+        int L = end - bodyStart;
 
         if (L < v2.minLength() || L > v2.maxLength()) {
             throw new IllegalArgumentException("Invalid v2 code length: " + L);
         }
 
-        BigInteger m = pow62(L);
-        BigInteger a = deriveA(L, m, v2.key());
-        BigInteger b = deriveB(L, m, v2.key());
-        BigInteger aInv = a.modInverse(m);
-
-        long yLong = Base62.decode(body);
-        BigInteger y = unsignedLongToBigInt(yLong);
-
-        BigInteger x = Affine62.invert(y, aInv, b, m);
-        long id = x.longValueExact();
+        V2Length p = v2ByLength[L];
+        long y = Base62.decode(src, bodyStart, end);
+        long id = Affine62.invert(y, p.aInv(), p.b(), p.m());
 
         if (id <= 0) throw new IllegalArgumentException("decoded id invalid");
         return id;
     }
 
-    private static int pickLengthUnsigned(long id, int minLen, int maxLen) {
-        BigInteger x = unsignedLongToBigInt(id);
-        for (int L = minLen; L <= maxLen; L++) {
-            if (x.compareTo(pow62(L)) < 0) return L;
+    private boolean hasV2Prefix(CharSequence src, int start, int end) {
+        String prefix = v2.prefix();
+        if (end - start < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (src.charAt(start + i) != prefix.charAt(i)) return false;
         }
-        return -1;
+        return true;
     }
 
+    private V2Length pickLength(long id) {
+        for (int L = v2.minLength(); L <= v2.maxLength(); L++) {
+            V2Length p = v2ByLength[L];
+            if (id < p.m()) return p;
+        }
+        return null;
+    }
+
+    /**
+     * Derives the affine parameters for every allowed length once, so encode/decode
+     * only do table lookups and 64-bit arithmetic. Derivation is identical to the
+     * original per-call BigInteger path, so existing codes keep decoding.
+     */
+    private static V2Length[] buildV2Table(CodeV2Props v2) {
+        if (v2.minLength() < 1 || v2.maxLength() > V2_MAX_SUPPORTED_LENGTH || v2.minLength() > v2.maxLength()) {
+            throw new IllegalArgumentException("v2 lengths must satisfy 1 <= min-length <= max-length <= "
+                    + V2_MAX_SUPPORTED_LENGTH);
+        }
+
+        V2Length[] table = new V2Length[v2.maxLength() + 1];
+        for (int L = v2.minLength(); L <= v2.maxLength(); L++) {
+            BigInteger m = pow62(L);
+            BigInteger a = deriveA(L, m, v2.key());
+            BigInteger b = deriveB(L, m, v2.key());
+            BigInteger aInv = a.modInverse(m);
+            table[L] = new V2Length(L, m.longValueExact(), a.longValueExact(), aInv.longValueExact(), b.longValueExact());
+        }
+        return table;
+    }
+
+    private record V2Length(int length, long m, long a, long aInv, long b) {}
+
     private static BigInteger pow62(int L) {
         return BI_62.pow(L);
     }
@@ -150,22 +186,4 @@ public final class CodeCodec {
             throw new IllegalStateException("SHA-256 not available", e);
         }
     }
-
-    private static BigInteger unsignedLongToBigInt(long v) {
-        if (v >= 0) return BigInteger.valueOf(v);
-        return BigInteger.valueOf(v & Long.MAX_VALUE).setBit(63);
-    }
-
-    // ---------------- small helpers ----------------
-
-    private static String leftPad(String s, int minLen) {
-        if (s.length() >= minLen) return s;
-        return "0".repeat(minLen - s.length()) + s;
-    }
-
-    private static String trimLeadingZeros(String s) {
-        int i = 0;
-        while (i < s.length() - 1 && s.charAt(i) == '0') i++;
-        return s.substring(i);
-    }
-}
\ No newline at end of file
+}
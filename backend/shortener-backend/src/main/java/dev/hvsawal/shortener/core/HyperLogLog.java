@@ -0,0 +1,105 @@
+package dev.hvsawal.shortener.core;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Distinct-count sketch with 2^{@value #P} one-byte registers (≈6.5% standard error, 256 bytes
+ * dense). Feed it well-mixed 64-bit hashes: the top {@value #P} bits pick a register, the rank of
+ * the rest goes in it.
+ *
+ * <p>Serialized form: empty for an empty sketch; {@code 1} followed by (index, rank) byte pairs
+ * in index order while fewer than half the registers are set (sparse); otherwise {@code 2}
+ * followed by all {@value #M} registers. Merging is a per-register max, so it is commutative and
+ * idempotent: applying the same sketch twice changes nothing. Not thread-safe.
+ */
+public final class HyperLogLog {
+
+    public static final int P = 8;
+    public static final int M = 1 << P;
+
+    private static final byte SPARSE = 1;
+    private static final byte DENSE = 2;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / M);
+
+    private final byte[] registers = new byte[M];
+
+    /** Register a hash goes to. */
+    public static int index(long hash) {
+        return (int) (hash >>> (64 - P));
+    }
+
+    /** Position of the first 1-bit after the index bits, 1-based; at most {@code 65 - P}. */
+    public static int rank(long hash) {
+        return Long.numberOfLeadingZeros((hash << P) | (1L << (P - 1))) + 1;
+    }
+
+    public void add(long hash) {
+        set(index(hash), rank(hash));
+    }
+
+    /** Raises register {@code index} to {@code rank} if it is lower. */
+    public void set(int index, int rank) {
+        if (rank > registers[index]) registers[index] = (byte) rank;
+    }
+
+    public int get(int index) {
+        return registers[index];
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < M; i++) set(i, other.registers[i]);
+    }
+
+    public boolean isEmpty() {
+        for (byte r : registers) if (r != 0) return false;
+        return true;
+    }
+
+    /** Estimated number of distinct hashes added; linear counting while most registers are empty. */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) zeros++;
+        }
+        double e = ALPHA * M * M / sum;
+        if (e <= 2.5 * M && zeros > 0) e = M * Math.log((double) M / zeros);
+        return Math.round(e);
+    }
+
+    public byte[] toBytes() {
+        int set = 0;
+        for (byte r : registers) if (r != 0) set++;
+        if (set == 0) return new byte[0];
+        if (set * 2 >= M) {
+            byte[] out = new byte[1 + M];
+            out[0] = DENSE;
+            System.arraycopy(registers, 0, out, 1, M);
+            return out;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 + set * 2);
+        out.write(SPARSE);
+        for (int i = 0; i < M; i++) {
+            if (registers[i] != 0) {
+                out.write(i);
+                out.write(registers[i]);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /** @throws IllegalArgumentException if {@code bytes} is not a sketch written by {@link #toBytes()} */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        HyperLogLog h = new HyperLogLog();
+        if (bytes == null || bytes.length == 0) return h;
+        if (bytes[0] == DENSE && bytes.length == 1 + M) {
+            for (int i = 0; i < M; i++) h.set(i, bytes[1 + i]);
+        } else if (bytes[0] == SPARSE && bytes.length % 2 == 1) {
+            for (int k = 1; k < bytes.length; k += 2) h.set(bytes[k] & 0xff, bytes[k + 1]);
+        } else {
+            throw new IllegalArgumentException("not a HyperLogLog sketch (" + bytes.length + " bytes)");
+        }
+        return h;
+    }
+}
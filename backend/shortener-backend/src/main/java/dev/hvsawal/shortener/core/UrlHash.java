@@ -2,33 +2,56 @@ package dev.hvsawal.shortener.core;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public final class UrlHash {
+    /** SHA-256 digest size; enforced by ck_short_url_url_hash_len. */
+    public static final int LENGTH = 32;
+
+    private static final byte[] SUFFIX_TRUE = "|true".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SUFFIX_FALSE = "|false".getBytes(StandardCharsets.UTF_8);
+
+    // Striped digest pool rather than a ThreadLocal: with virtual threads every request runs on
+    // a fresh thread, so a ThreadLocal would still create one MessageDigest per create.
+    private static final int SLOTS = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 4);
+    private static final AtomicReferenceArray<MessageDigest> POOL = new AtomicReferenceArray<>(SLOTS);
+
     private UrlHash() {
     }
 
     /**
-     * SHA-256 hex(normalizedUrl + "|" + previewEnabled).
+     * SHA-256(normalizedUrl + "|" + previewEnabled), as raw bytes.
      */
-    public static String sha256Hex(String normalizedUrl, boolean previewEnabled) {
-        String input = normalizedUrl + "|" + previewEnabled;
+    public static byte[] sha256(String normalizedUrl, boolean previewEnabled) {
+        int slot = (int) Thread.currentThread().threadId() & (SLOTS - 1);
+        MessageDigest md = POOL.getAndSet(slot, null);
+        if (md == null) md = newDigest();
+
+        md.update(normalizedUrl.getBytes(StandardCharsets.UTF_8));
+        md.update(previewEnabled ? SUFFIX_TRUE : SUFFIX_FALSE);
+        byte[] digest = md.digest(); // digest() also resets md for the next borrower
+
+        POOL.lazySet(slot, md);
+        return digest;
+    }
+
+    /** SHA-256 of arbitrary bytes, from the same digest pool. */
+    public static byte[] sha256(byte[] data) {
+        int slot = (int) Thread.currentThread().threadId() & (SLOTS - 1);
+        MessageDigest md = POOL.getAndSet(slot, null);
+        if (md == null) md = newDigest();
+
+        byte[] digest = md.digest(data);
+
+        POOL.lazySet(slot, md);
+        return digest;
+    }
+
+    private static MessageDigest newDigest() {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(input.getBytes(StandardCharsets.UTF_8));
-            return toHex(digest);
+            return MessageDigest.getInstance("SHA-256");
         } catch (Exception e) {
             throw new IllegalStateException("SHA-256 not available", e);
         }
     }
-
-    private static String toHex(byte[] bytes) {
-        char[] out = new char[bytes.length * 2];
-        char[] alphabet = "0123456789abcdef".toCharArray();
-        for (int i = 0; i < bytes.length; i++) {
-            int v = bytes[i] & 0xFF;
-            out[i * 2] = alphabet[v >>> 4];
-            out[i * 2 + 1] = alphabet[v & 0x0F];
-        }
-        return new String(out);
-    }
 }
@@ -2,9 +2,34 @@ package dev.hvsawal.shortener.core;
 
 import dev.hvsawal.shortener.support.errors.InvalidUrlException;
 
+import java.net.IDN;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 
+/**
+ * Validates and canonicalizes user-supplied URLs so equivalent inputs dedup to the same row:
+ * lowercase scheme and host, IDN hosts as punycode, user-info dropped, default port dropped,
+ * empty path as "/". Path, query and fragment are kept verbatim (non-ASCII is percent-encoded).
+ *
+ * <p>Common inputs go through a single hand-written pass with no {@link URI} allocation;
+ * anything unusual (IPv6 literals, characters outside RFC 2396, odd authorities) falls back
+ * to {@link URI} parsing, which also keeps its error messages for malformed input.
+ */
 public final class UrlNormalizer {
+    private static final int MAX_LENGTH = 4096;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    // Path/query/fragment chars java.net.URI accepts unescaped (RFC 2396 "uric" minus '%' and '#')
+    private static final boolean[] URIC = new boolean[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) URIC[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) URIC[c] = true;
+        for (char c = '0'; c <= '9'; c++) URIC[c] = true;
+        for (char c : "-_.!~*'();/?:@&=+$,".toCharArray()) URIC[c] = true;
+    }
+
     private UrlNormalizer() {
     }
 
@@ -12,8 +37,120 @@ public final class UrlNormalizer {
         if (input == null) throw new InvalidUrlException("URL is required");
         String raw = input.trim();
         if (raw.isEmpty()) throw new InvalidUrlException("URL is required");
-        if (raw.length() > 4096) throw new InvalidUrlException("URL too long");
+        if (raw.length() > MAX_LENGTH) throw new InvalidUrlException("URL too long");
+
+        String fast = normalizeFast(raw);
+        return fast != null ? fast : normalizeViaUri(raw);
+    }
+
+    /**
+     * Single-pass parse of {@code http(s)://[userinfo@]host[:port][/path][?query][#fragment]}.
+     *
+     * @return the canonical URL, or {@code null} if the input needs the full {@link URI} parser
+     * @throws InvalidUrlException if the URL is well-formed but fails the host policy
+     */
+    static String normalizeFast(String s) {
+        int n = s.length();
+        boolean https;
+        int i;
+        if (s.regionMatches(true, 0, "https://", 0, 8)) {
+            https = true;
+            i = 8;
+        } else if (s.regionMatches(true, 0, "http://", 0, 7)) {
+            https = false;
+            i = 7;
+        } else {
+            return null;
+        }
+
+        // authority ends at the first '/', '?' or '#'; user-info ends at '@'
+        int hostStart = i;
+        int authEnd = i;
+        for (; authEnd < n; authEnd++) {
+            char c = s.charAt(authEnd);
+            if (c == '/' || c == '?' || c == '#') break;
+            if (c == '@') {
+                if (hostStart != i) return null; // more than one '@'
+                if (!isUricRun(s, i, authEnd)) return null;
+                hostStart = authEnd + 1;
+            }
+        }
+
+        int hostEnd = authEnd;
+        int port = -1;
+        for (int k = authEnd - 1; k >= hostStart; k--) {
+            char c = s.charAt(k);
+            if (c == ':') {
+                port = parsePort(s, k + 1, authEnd);
+                if (port < 0) return null;
+                hostEnd = k;
+                break;
+            }
+            if (c < '0' || c > '9') break;
+        }
+        if (hostStart == hostEnd || s.charAt(hostStart) == '[') return null;
+
+        // host: ASCII LDH labels are lowercased in place, anything non-ASCII goes through IDN
+        boolean lower = true;
+        boolean ascii = true;
+        for (int k = hostStart; k < hostEnd; k++) {
+            char c = s.charAt(k);
+            if (c >= 0x80) {
+                ascii = false;
+            } else if (c >= 'A' && c <= 'Z') {
+                lower = false;
+            } else if (!((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '.')) {
+                return null;
+            }
+        }
+
+        CharSequence host;
+        int hs;
+        int he;
+        if (ascii) {
+            host = s;
+            hs = hostStart;
+            he = hostEnd;
+        } else {
+            String idn = toAsciiHost(s.substring(hostStart, hostEnd));
+            host = idn;
+            hs = 0;
+            he = idn.length();
+        }
+        if (!hasWellFormedLabels(host, hs, he)) return null;
+
+        // rest: only chars URI accepts verbatim, valid %XX escapes, at most one '#'
+        boolean fragment = false;
+        for (int k = authEnd; k < n; k++) {
+            char c = s.charAt(k);
+            if (c == '%') {
+                if (k + 2 >= n || !isHex(s.charAt(k + 1)) || !isHex(s.charAt(k + 2))) return null;
+                k += 2;
+            } else if (c == '#') {
+                if (fragment) return null;
+                fragment = true;
+            } else if (c >= 0x80 || !URIC[c]) {
+                return null;
+            }
+        }
+
+        UrlValidator.validateHost(host, hs, he, true);
+
+        StringBuilder sb = new StringBuilder(n + 1);
+        sb.append(https ? "https://" : "http://");
+        if (lower) {
+            sb.append(host, hs, he);
+        } else {
+            for (int k = hs; k < he; k++) sb.append(toLowerAscii(host.charAt(k)));
+        }
+        if (port >= 0 && port != (https ? 443 : 80)) sb.append(':').append(port);
+        if (authEnd == n || s.charAt(authEnd) != '/') sb.append('/');
+        sb.append(s, authEnd, n);
+        return sb.toString();
+    }
 
+    /** Fallback for inputs the single-pass parser doesn't take; same canonical form. */
+    static String normalizeViaUri(String raw) {
         URI uri;
         try {
             uri = URI.create(raw);
@@ -30,25 +167,92 @@ public final class UrlNormalizer {
         }
 
         UrlValidator.validateStrict(uri, true);
-        return uri.toString();
-
-        // Normalize host to ASCII (handles international domains)
-//        String hostAscii = IDN.toASCII(uri.getHost());
-//
-//        // Rebuild a clean URI (keeps path/query; drops user-info for safety)
-//        try {
-//            URI clean = new URI(
-//                    scheme.toLowerCase(),
-//                    null,
-//                    hostAscii,
-//                    uri.getPort(),
-//                    uri.getRawPath(),
-//                    uri.getRawQuery(),
-//                    null
-//            );
-//            return clean.toASCIIString();
-//        } catch (Exception e) {
-//            throw new InvalidUrlException("Invalid URL");
-//        }
+
+        // Rebuild a clean URL (keeps path/query/fragment; drops user-info for safety)
+        String lowerScheme = scheme.toLowerCase(Locale.ROOT);
+        String host = uri.getHost();
+        if (host.charAt(0) != '[') host = IDN.toASCII(host);
+
+        StringBuilder sb = new StringBuilder(raw.length() + 16);
+        sb.append(lowerScheme).append("://").append(host.toLowerCase(Locale.ROOT));
+        int port = uri.getPort();
+        if (port >= 0 && port != (lowerScheme.equals("https") ? 443 : 80)) sb.append(':').append(port);
+
+        String path = uri.getRawPath();
+        if (path == null || path.isEmpty()) sb.append('/');
+        else appendAscii(sb, path);
+        if (uri.getRawQuery() != null) appendAscii(sb.append('?'), uri.getRawQuery());
+        if (uri.getRawFragment() != null) appendAscii(sb.append('#'), uri.getRawFragment());
+        return sb.toString();
+    }
+
+    private static String toAsciiHost(String host) {
+        try {
+            return IDN.toASCII(host);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidUrlException("Host must be a valid public domain");
+        }
+    }
+
+    /** Non-empty labels (a single trailing dot is fine) that don't start or end with '-'. */
+    private static boolean hasWellFormedLabels(CharSequence h, int start, int end) {
+        int labelStart = start;
+        for (int k = start; k <= end; k++) {
+            if (k == end || h.charAt(k) == '.') {
+                if (k == labelStart) {
+                    if (k == end && k > start) return true; // trailing dot
+                    return false;
+                }
+                if (h.charAt(labelStart) == '-' || h.charAt(k - 1) == '-') return false;
+                labelStart = k + 1;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUricRun(String s, int start, int end) {
+        for (int k = start; k < end; k++) {
+            char c = s.charAt(k);
+            if (c == '%') {
+                if (k + 2 >= end || !isHex(s.charAt(k + 1)) || !isHex(s.charAt(k + 2))) return false;
+                k += 2;
+            } else if (c >= 0x80 || !URIC[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Port digits in {@code s[start, end)}, or -1 if absent/too large (left to URI). */
+    private static int parsePort(String s, int start, int end) {
+        int len = end - start;
+        if (len == 0 || len > 5) return -1;
+        int port = 0;
+        for (int k = start; k < end; k++) port = port * 10 + (s.charAt(k) - '0');
+        return port <= 65535 ? port : -1;
+    }
+
+    /** Appends {@code s}, percent-encoding non-ASCII as UTF-8 (URI allows them raw, Location headers don't). */
+    private static void appendAscii(StringBuilder sb, String s) {
+        for (int k = 0; k < s.length(); k++) {
+            char c = s.charAt(k);
+            if (c < 0x80) {
+                sb.append(c);
+                continue;
+            }
+            int end = Character.isHighSurrogate(c) && k + 1 < s.length() ? k + 2 : k + 1;
+            for (byte b : s.substring(k, end).getBytes(StandardCharsets.UTF_8)) {
+                sb.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+            k = end - 1;
+        }
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static char toLowerAscii(char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
     }
 }
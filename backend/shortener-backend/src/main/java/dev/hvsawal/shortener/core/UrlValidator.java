@@ -3,12 +3,9 @@ package dev.hvsawal.shortener.core;
 import dev.hvsawal.shortener.support.errors.InvalidUrlException;
 
 import java.net.IDN;
-import java.net.InetAddress;
 import java.net.URI;
-import java.util.Set;
 
 public final class UrlValidator {
-    private static final Set<String> ALLOWED_SCHEMES = Set.of("http", "https");
 
     private UrlValidator() {
     }
@@ -31,45 +28,106 @@ public final class UrlValidator {
             throw new InvalidUrlException("URL must be absolute and include a host");
         }
 
-        String asciiHost = IDN.toASCII(host);
-        if (allowLocalhost && "localhost".equalsIgnoreCase(asciiHost)) {
+        // Bracketed IPv6 literal: java.net.URI has already parsed and validated it
+        if (host.charAt(0) == '[') {
             return;
         }
 
-        // Accept IPs (v4/v6)
-        if (isIpAddress(asciiHost)) {
+        String asciiHost;
+        try {
+            asciiHost = IDN.toASCII(host);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidUrlException("Host must be a valid public domain");
+        }
+        validateHost(asciiHost, 0, asciiHost.length(), allowLocalhost);
+    }
+
+    /**
+     * Host policy on an already-ASCII host {@code h[start, end)}, shared with the
+     * single-pass parser in {@link UrlNormalizer}. Does no DNS lookups and no allocation.
+     */
+    static void validateHost(CharSequence h, int start, int end, boolean allowLocalhost) {
+        if (allowLocalhost && regionEqualsIgnoreCase(h, start, end, "localhost")) {
             return;
         }
 
+        // Accept IPv4 literals (IPv6 only ever arrives bracketed, see validateStrict)
+        if (isIpv4Literal(h, start, end)) {
+            return;
+        }
+
+        // A single trailing dot (fully-qualified form) doesn't count as a label separator
+        int last = end;
+        if (last > start && h.charAt(last - 1) == '.') last--;
+
         // Require at least one dot for public domains
-        if (!asciiHost.contains(".")) {
+        int dot = lastIndexOf(h, '.', start, last);
+        if (dot < 0) {
             throw new InvalidUrlException("Host must be a valid public domain");
         }
 
-        // Basic TLD sanity: last label >= 2 chars, alpha only (simple + pragmatic)
-        String[] labels = asciiHost.split("\\.");
-        String tld = labels[labels.length - 1];
-        if (tld.length() < 2 || !tld.chars().allMatch(Character::isLetter)) {
-            throw new IllegalArgumentException("Host must have a valid TLD");
+        // Basic TLD sanity: last label >= 2 chars, alpha only (simple + pragmatic), or an IDN "xn--" label
+        if (!isPlausibleTld(h, dot + 1, last)) {
+            throw new InvalidUrlException("Host must have a valid TLD");
         }
     }
 
-    private static boolean isIpAddress(String host) {
-        try {
-            // InetAddress can resolve names too; we only want literal IPs.
-            // If it parses without DNS lookups, it's a literal IP.
-            // Heuristic: if contains ':' it's IPv6 literal; if digits/dots IPv4.
-            if (host.contains(":")) {
-                InetAddress.getByName(host);
-                return true;
+    /** Strict dotted-quad: exactly four decimal octets 0..255. */
+    static boolean isIpv4Literal(CharSequence h, int start, int end) {
+        int octets = 0;
+        int i = start;
+        while (i < end) {
+            int value = 0;
+            int digits = 0;
+            while (i < end && h.charAt(i) >= '0' && h.charAt(i) <= '9') {
+                value = value * 10 + (h.charAt(i) - '0');
+                if (++digits > 3) return false;
+                i++;
             }
-            if (host.chars().allMatch(c -> Character.isDigit(c) || c == '.')) {
-                InetAddress.getByName(host);
-                return true;
+            if (digits == 0 || value > 255) return false;
+            octets++;
+            if (i == end) break;
+            if (h.charAt(i) != '.' || octets == 4) return false;
+            i++;
+            if (i == end) return false; // trailing dot
+        }
+        return octets == 4;
+    }
+
+    private static boolean isPlausibleTld(CharSequence h, int start, int end) {
+        int len = end - start;
+        if (len < 2) return false;
+
+        if (len > 4 && regionEqualsIgnoreCase(h, start, start + 4, "xn--")) {
+            for (int i = start + 4; i < end; i++) {
+                char c = h.charAt(i);
+                if (!(isAsciiLetter(c) || (c >= '0' && c <= '9') || c == '-')) return false;
             }
-            return false;
-        } catch (Exception e) {
-            return false;
+            return true;
+        }
+
+        for (int i = start; i < end; i++) {
+            if (!isAsciiLetter(h.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static int lastIndexOf(CharSequence h, char c, int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (h.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    private static boolean regionEqualsIgnoreCase(CharSequence h, int start, int end, String expected) {
+        if (end - start != expected.length()) return false;
+        for (int i = 0; i < expected.length(); i++) {
+            if (Character.toLowerCase(h.charAt(start + i)) != expected.charAt(i)) return false;
         }
+        return true;
     }
 }
@@ -0,0 +1,36 @@
+package dev.hvsawal.shortener.domain;
+
+import java.time.Duration;
+
+/** Bucket widths stored in click_bucket (the column holds {@link #minutes()}). */
+public enum ClickGranularity {
+    MINUTE(1, 7 * 24 * 60),
+    HOUR(60, 366 * 24);
+
+    private final int minutes;
+    private final int maxPoints;
+
+    ClickGranularity(int minutes, int maxPoints) {
+        this.minutes = minutes;
+        this.maxPoints = maxPoints;
+    }
+
+    public int minutes() {
+        return minutes;
+    }
+
+    /** Longest series one request may ask for (7 days of minutes, a year of hours). */
+    public int maxPoints() {
+        return maxPoints;
+    }
+
+    public Duration width() {
+        return Duration.ofMinutes(minutes);
+    }
+
+    /** Start of the bucket containing {@code epochMillis}. */
+    public long floor(long epochMillis) {
+        long w = minutes * 60_000L;
+        return Math.floorDiv(epochMillis, w) * w;
+    }
+}
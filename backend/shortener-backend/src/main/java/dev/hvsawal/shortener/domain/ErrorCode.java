@@ -2,6 +2,7 @@ package dev.hvsawal.shortener.domain;
 
 public enum ErrorCode {
     INVALID_URL,
+    INVALID_REQUEST,
     CODE_NOT_FOUND,
     URL_EXPIRED,
     RATE_LIMITED,
@@ -5,6 +5,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -20,8 +21,12 @@ import java.time.OffsetDateTime;
 @NoArgsConstructor
 public class ShortUrlEntity {
 
+    /** Ids leased per nextval(); must equal the INCREMENT BY of short_url_id_seq (V4 migration). */
+    public static final int ID_BLOCK_SIZE = 1000;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "short_url_id")
+    @SequenceGenerator(name = "short_url_id", sequenceName = "short_url_id_seq", allocationSize = ID_BLOCK_SIZE)
     private Long id;
 
     @Column(name = "original_url", nullable = false, columnDefinition = "text")
@@ -44,11 +49,11 @@ public class ShortUrlEntity {
     @NotNull
     private long clickCount;
 
-    @Column(name = "url_hash", nullable = false, length = 64)
+    @Column(name = "url_hash", nullable = false, length = 32)
     @NotNull
-    private String urlHash;
+    private byte[] urlHash;
 
-    public ShortUrlEntity(String originalUrl, boolean previewEnabled, OffsetDateTime createdAt, OffsetDateTime expiresAt, String urlHash) {
+    public ShortUrlEntity(String originalUrl, boolean previewEnabled, OffsetDateTime createdAt, OffsetDateTime expiresAt, byte[] urlHash) {
         this.originalUrl = originalUrl;
         this.previewEnabled = previewEnabled;
         this.createdAt = createdAt;
@@ -0,0 +1,16 @@
+package dev.hvsawal.shortener.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/** Clicks per bucket in {@code [from, to)}, one point per bucket including empty ones. */
+public record ClickSeriesResponse(
+        String code,
+        String granularity,
+        OffsetDateTime from,
+        OffsetDateTime to,
+        long total,
+        List<Point> points
+) {
+    public record Point(OffsetDateTime start, long clicks) {}
+}
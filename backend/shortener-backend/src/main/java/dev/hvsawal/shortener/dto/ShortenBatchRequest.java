@@ -0,0 +1,24 @@
+package dev.hvsawal.shortener.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * Items are deliberately not bean-validated: a blank, too long or malformed URL is reported on
+ * its own item (see {@link ShortenBatchResponse}) instead of rejecting the batch. Only the list
+ * itself and null elements are checked here.
+ *
+ * <p>{@link #MAX_ITEMS} is a hard cap; the rate limit's burst can lower it (120 with the shipped
+ * config), and a batch above that gets a 400 stating the limit.
+ */
+public record ShortenBatchRequest(
+        @NotEmpty(message = "items is required")
+        @Size(max = ShortenBatchRequest.MAX_ITEMS,
+                message = "too many items (max " + ShortenBatchRequest.MAX_ITEMS + ", or the rate limit burst if lower)")
+        List<@NotNull(message = "items must not contain null") ShortenRequest> items
+) {
+    public static final int MAX_ITEMS = 1000;
+}
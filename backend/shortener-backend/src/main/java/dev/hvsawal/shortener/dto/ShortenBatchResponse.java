@@ -0,0 +1,18 @@
+package dev.hvsawal.shortener.dto;
+
+import java.util.List;
+
+/**
+ * One entry per request item, in request order. Exactly one of {@code result} / {@code errorCode} is set.
+ * Items are written in chunks that commit independently; if a chunk fails after earlier ones committed,
+ * its items (and later ones) carry {@code SERVICE_UNAVAILABLE}. Resending them, or the whole batch, is
+ * safe: creates are idempotent per URL.
+ */
+public record ShortenBatchResponse(List<Item> items) {
+
+    public record Item(
+            ShortenUrlResponse result,
+            String errorCode,
+            String error
+    ) {}
+}
@@ -9,5 +9,6 @@ public record ShortenUrlResponse(
         boolean previewEnabled,
         OffsetDateTime createdAt,
         OffsetDateTime expiresAt,
-        Long clickCount
+        Long clickCount,
+        Long uniqueVisitors  // HyperLogLog estimate (±~6.5%), as of the last visitor flush
 ) {}
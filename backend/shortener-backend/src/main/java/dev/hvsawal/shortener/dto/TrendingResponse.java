@@ -0,0 +1,17 @@
+package dev.hvsawal.shortener.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Hottest links on the answering node over {@code window}, most clicked first. {@code clicks} is
+ * an upper bound; the true count is at least {@code clicks - maxError}.
+ */
+public record TrendingResponse(
+        String window,
+        OffsetDateTime from,
+        OffsetDateTime to,
+        List<Item> items
+) {
+    public record Item(String code, long clicks, long maxError) {}
+}
@@ -0,0 +1,59 @@
+package dev.hvsawal.shortener.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Small connection pool of its own for analytics writes (click counts, click buckets, visitor
+ * sketches, the journal checkpoint), so a slow or large flush never holds a connection that a
+ * redirect or create needs, and redirect load never starves the flush.
+ *
+ * <p>Same database and credentials as {@code spring.datasource}; deliberately not a
+ * {@code DataSource} bean, so the primary DataSource, JdbcTemplate and JPA auto-configuration
+ * are unaffected. Statements that must commit together use {@link #tx()}.
+ */
+@Component
+public class AnalyticsDatabase {
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+
+    public AnalyticsDatabase(DataSourceProperties main, ShortenerConfigurationProperties props, MeterRegistry registry) {
+        var db = props.clickcount().db();
+        this.dataSource = main.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("analytics");
+        dataSource.setMaximumPoolSize(poolSize(props));
+        dataSource.setMinimumIdle(0);
+        dataSource.setConnectionTimeout(db != null && db.connectionTimeoutMs() >= 250 ? db.connectionTimeoutMs() : 2_000);
+        dataSource.setMetricRegistry(registry);
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    /** Connections in the pool; also the number of {@code AnalyticsBulkhead} permits. */
+    public static int poolSize(ShortenerConfigurationProperties props) {
+        var db = props.clickcount().db();
+        return db != null && db.poolSize() > 0 ? db.poolSize() : 2;
+    }
+
+    public JdbcTemplate jdbc() {
+        return jdbc;
+    }
+
+    public TransactionTemplate tx() {
+        return tx;
+    }
+
+    @PreDestroy
+    void close() {
+        dataSource.close();
+    }
+}
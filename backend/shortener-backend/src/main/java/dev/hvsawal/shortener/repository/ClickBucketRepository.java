@@ -0,0 +1,94 @@
+package dev.hvsawal.shortener.repository;
+
+import dev.hvsawal.shortener.domain.ClickGranularity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * click_bucket: clicks per link per minute and per hour, range-partitioned by month (V7).
+ * Plain JDBC like {@link ShortUrlRepositoryCustomImpl}; there is no entity for these rows.
+ * Writes and partition DDL go through {@link AnalyticsDatabase}, reads through the main pool.
+ */
+@Repository
+public class ClickBucketRepository {
+
+    // Every (id, delta) lands in its minute and its hour bucket; one statement for both widths
+    private static final String ADD_CLICKS = """
+            insert into click_bucket (short_url_id, granularity, bucket_start, clicks)
+            select d.id, g.minutes, g.start, d.delta
+            from unnest(?::bigint[], ?::bigint[]) as d(id, delta)
+            cross join (values (1::smallint, ?::timestamptz), (60::smallint, ?::timestamptz)) as g(minutes, start)
+            on conflict (short_url_id, granularity, bucket_start)
+            do update set clicks = click_bucket.clicks + excluded.clicks""";
+
+    private static final String SELECT_RANGE = """
+            select bucket_start, clicks from click_bucket
+            where short_url_id = ? and granularity = ? and bucket_start >= ? and bucket_start < ?
+            order by bucket_start""";
+
+    private final JdbcTemplate jdbc;
+    private final JdbcTemplate analyticsJdbc;
+
+    public ClickBucketRepository(JdbcTemplate jdbc, AnalyticsDatabase analytics) {
+        this.jdbc = jdbc;
+        this.analyticsJdbc = analytics.jdbc();
+    }
+
+    /**
+     * Adds {@code deltas[i]} clicks for {@code ids[i]} to the minute and hour buckets containing
+     * {@code atEpochMillis}. Ids must be distinct. Meant to share the transaction that adds the
+     * same deltas to short_url.click_count.
+     */
+    public void addClicks(long[] ids, long[] deltas, long atEpochMillis) {
+        if (ids.length != deltas.length) {
+            throw new IllegalArgumentException("addClicks: ids and deltas must have the same length");
+        }
+        if (ids.length == 0) return;
+        OffsetDateTime minute = utc(ClickGranularity.MINUTE.floor(atEpochMillis));
+        OffsetDateTime hour = utc(ClickGranularity.HOUR.floor(atEpochMillis));
+        analyticsJdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(ADD_CLICKS);
+            ps.setArray(1, con.createArrayOf("int8", Arrays.stream(ids).boxed().toArray()));
+            ps.setArray(2, con.createArrayOf("int8", Arrays.stream(deltas).boxed().toArray()));
+            ps.setObject(3, minute);
+            ps.setObject(4, hour);
+            return ps;
+        });
+    }
+
+    /** Non-empty buckets with {@code from <= start < to}, ascending. */
+    public List<Bucket> findRange(long id, ClickGranularity granularity, OffsetDateTime from, OffsetDateTime to) {
+        return jdbc.query(SELECT_RANGE,
+                (rs, i) -> new Bucket(rs.getObject(1, OffsetDateTime.class), rs.getLong(2)),
+                id, (short) granularity.minutes(), from, to);
+    }
+
+    /**
+     * Creates the monthly partitions for this month and the next {@code monthsAhead} (idempotent).
+     *
+     * @return rows moved out of the default partition into newly created ones
+     */
+    public long ensurePartitions(int monthsAhead) {
+        Long moved = analyticsJdbc.queryForObject("select click_bucket_ensure_partitions(?)", Long.class, monthsAhead);
+        return moved == null ? 0 : moved;
+    }
+
+    /** Drops monthly partitions that end on or before {@code cutoff}; returns how many. */
+    public int dropPartitionsBefore(OffsetDateTime cutoff) {
+        Integer dropped = analyticsJdbc.queryForObject("select click_bucket_drop_partitions_before(?)", Integer.class, cutoff);
+        return dropped == null ? 0 : dropped;
+    }
+
+    private static OffsetDateTime utc(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atOffset(ZoneOffset.UTC);
+    }
+
+    public record Bucket(OffsetDateTime start, long clicks) {}
+}
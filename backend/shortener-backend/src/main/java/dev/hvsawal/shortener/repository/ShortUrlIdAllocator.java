@@ -0,0 +1,60 @@
+package dev.hvsawal.shortener.repository;
+
+import dev.hvsawal.shortener.domain.ShortUrlEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out short_url ids from locally leased blocks, for inserts that bypass Hibernate.
+ * Same pooled-lo contract as the entity's sequence generator: each nextval() = v reserves
+ * [v, v + ID_BLOCK_SIZE), so both allocators can share short_url_id_seq without overlapping.
+ */
+@Component
+public class ShortUrlIdAllocator {
+
+    private static final String NEXT_BLOCK = "select nextval('short_url_id_seq')";
+
+    private final JdbcTemplate jdbc;
+
+    // ReentrantLock rather than synchronized: leasing does JDBC I/O and must not pin a virtual thread's carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private long next;
+    private long limit; // exclusive
+
+    public ShortUrlIdAllocator(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /** Fills {@code out} with fresh ids; hits the sequence once per {@link ShortUrlEntity#ID_BLOCK_SIZE} ids. */
+    public void allocate(long[] out) {
+        lock.lock();
+        try {
+            for (int i = 0; i < out.length; i++) {
+                if (next == limit) {
+                    Long v = jdbc.queryForObject(NEXT_BLOCK, Long.class);
+                    if (v == null) throw new IllegalStateException("nextval returned null");
+                    next = v;
+                    limit = v + ShortUrlEntity.ID_BLOCK_SIZE;
+                }
+                out[i] = next++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Best-effort give-back of an id that ended up unused (e.g. the insert hit an existing url_hash),
+     * so duplicate creates don't burn ids. Only works if nobody allocated after it; otherwise it's a gap.
+     */
+    public void release(long id) {
+        lock.lock();
+        try {
+            if (next == id + 1 && limit - next < ShortUrlEntity.ID_BLOCK_SIZE) next = id;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package dev.hvsawal.shortener.repository;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.domain.ShortUrlEntity;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Upper bound of every id short_url_id_seq has handed out, on any node. A code that decodes past
+ * it can't exist, and random codes almost always do (scrambled ids are spread over 64 bits),
+ * so they are rejected without a DB permit.
+ *
+ * <p>The bound is re-read at most once per refresh interval, and only when an id above it shows
+ * up. Between re-reads other nodes keep leasing blocks, so an id up to {@link #NEAR_SLACK} past a
+ * fresh bound is let through to the DB (and negative cache) rather than rejected; an id past a
+ * bound that isn't known to be fresh (a re-read in flight on another thread, or failing) is too.
+ */
+@Component
+public class ShortUrlIdRange {
+
+    private static final Logger log = LoggerFactory.getLogger(ShortUrlIdRange.class);
+
+    // pooled-lo: nextval() = v reserves [v, v + ID_BLOCK_SIZE); is_called=false means nothing leased yet
+    private static final String MAX_LEASED =
+            "select case when is_called then last_value + ? - 1 else 0 end from short_url_id_seq";
+
+    // Blocks other nodes may lease within one refresh interval without this node seeing them
+    static final long NEAR_SLACK = 64L * ShortUrlEntity.ID_BLOCK_SIZE;
+
+    private final JdbcTemplate jdbc;
+    private final long refreshNanos;
+
+    private volatile long maxId = -1; // -1 = not loaded yet
+    private volatile long loadedAt; // nanoTime the current maxId was read at
+    private final AtomicLong nextRefreshAt = new AtomicLong(System.nanoTime());
+
+    private final Counter rejected;
+
+    public ShortUrlIdRange(JdbcTemplate jdbc, ShortenerConfigurationProperties props, MeterRegistry registry) {
+        this.jdbc = jdbc;
+        this.refreshNanos = Math.max(1, props.cache().negative().idRangeRefreshMs()) * 1_000_000L;
+        this.rejected = Counter.builder("shortener_resolve_id_range_rejected_total").register(registry);
+    }
+
+    /** {@code false} only if {@code id} is certainly not allocated. */
+    public boolean mayExist(long id) {
+        if (id <= 0) {
+            rejected.increment();
+            return false;
+        }
+        if (id <= maxId) return true;
+
+        long now = System.nanoTime();
+        long due = nextRefreshAt.get();
+        boolean refreshed = now - due >= 0 && nextRefreshAt.compareAndSet(due, now + refreshNanos) && refresh(now);
+
+        long at = loadedAt; // before maxId: refresh writes them in the opposite order
+        long max = maxId;
+        if (max < 0 || id <= max) return true;
+        // Our own read came after the code was issued, so it is authoritative. Anyone else's may
+        // predate it: only reject well past a bound read within the last interval.
+        boolean certain = refreshed || (id - max > NEAR_SLACK && now - at < refreshNanos);
+        if (!certain) return true;
+        rejected.increment();
+        return false;
+    }
+
+    private boolean refresh(long now) {
+        try {
+            Long v = jdbc.queryForObject(MAX_LEASED, Long.class, ShortUrlEntity.ID_BLOCK_SIZE);
+            if (v == null) return false;
+            if (v > maxId) maxId = v;
+            loadedAt = now;
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Could not read short_url_id_seq; id range filter fails open above maxId={}. {}", maxId, e.toString());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package dev.hvsawal.shortener.repository;
+
+import dev.hvsawal.shortener.domain.ShortUrlEntity;
+import dev.hvsawal.shortener.service.ShortUrlService.Resolved;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Set-based statements that JPA can't express; implemented with plain JDBC in
+ * {@link ShortUrlRepositoryCustomImpl} and exposed through {@link ShortUrlRepository}.
+ */
+public interface ShortUrlRepositoryCustom {
+
+    /**
+     * Single-statement create-or-get on url_hash: inserts the row unless the hash exists and
+     * returns whichever row is now stored. One round trip for both outcomes; no exception on duplicates.
+     */
+    UpsertedRow upsert(String originalUrl, boolean previewEnabled, byte[] urlHash,
+                       OffsetDateTime createdAt, OffsetDateTime expiresAt);
+
+    /**
+     * Inserts every (url, preview, hash) that doesn't exist yet and returns the row for every
+     * hash, new or existing, in two statements regardless of size. Returned entities are
+     * detached; {@link UpsertedRow#inserted()} tells which ones this call created.
+     */
+    List<UpsertedRow> upsertAll(List<String> originalUrls, List<Boolean> previewEnabled, List<byte[]> urlHashes,
+                                OffsetDateTime createdAt, OffsetDateTime expiresAt);
+
+    /**
+     * Redirect read path: {@code original_url, preview_enabled, expires_at} by primary key, mapped
+     * straight into {@link Resolved} without an entity, persistence context or transaction.
+     *
+     * @return the row, or {@code null} if there is no row with this id
+     */
+    Resolved findResolvedById(long id);
+
+    /**
+     * Adds {@code deltas[i]} to the click_count of {@code ids[i]} for every i, as one UPDATE joined
+     * against the two arrays. Ids must be distinct; ids without a row are skipped. Runs on the
+     * {@link AnalyticsDatabase} pool (and in its transaction, if one is open).
+     *
+     * @return number of rows updated
+     */
+    int addClickCounts(long[] ids, long[] deltas);
+
+    record UpsertedRow(ShortUrlEntity entity, boolean inserted) {}
+}
@@ -0,0 +1,178 @@
+package dev.hvsawal.shortener.repository;
+
+import dev.hvsawal.shortener.domain.ShortUrlEntity;
+import dev.hvsawal.shortener.service.ShortUrlService.Resolved;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.nio.ByteBuffer;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+class ShortUrlRepositoryCustomImpl implements ShortUrlRepositoryCustom {
+
+    private static final String COLUMNS =
+            "id, original_url, preview_enabled, created_at, expires_at, click_count, url_hash";
+
+    // Rows that already exist (or lose a concurrent race) are skipped, not errors.
+    // Ids come from the local block (ShortUrlIdAllocator); ids of skipped rows are simply left unused.
+    private static final String INSERT_MISSING = """
+            insert into short_url (id, original_url, preview_enabled, created_at, expires_at, url_hash)
+            select t.id, t.u, t.p, ?, ?, t.h
+            from unnest(?::bigint[], ?::text[], ?::boolean[], ?::bytea[]) as t(id, u, p, h)
+            on conflict (url_hash) do nothing
+            returning\s""" + COLUMNS;
+
+    // Insert-or-select in one statement. "do nothing" (not "do update") so duplicates write nothing;
+    // the select branch only runs when the insert was skipped.
+    private static final String UPSERT_ONE =
+            "with ins as ("
+                    + " insert into short_url (id, original_url, preview_enabled, created_at, expires_at, url_hash)"
+                    + " values (?, ?, ?, ?, ?, ?)"
+                    + " on conflict (url_hash) do nothing"
+                    + " returning " + COLUMNS + ")"
+                    + " select " + COLUMNS + ", true as inserted from ins"
+                    + " union all"
+                    + " select " + COLUMNS + ", false as inserted from short_url"
+                    + " where url_hash = ? and not exists (select 1 from ins)";
+
+    private static final String SELECT_BY_HASH =
+            "select " + COLUMNS + ", false as inserted from short_url where url_hash = ?";
+
+    private static final String SELECT_BY_HASHES =
+            "select " + COLUMNS + " from short_url where url_hash = any(?::bytea[])";
+
+    private static final String SELECT_RESOLVED =
+            "select original_url, preview_enabled, expires_at from short_url where id = ?";
+
+    private static final String ADD_CLICK_COUNTS = """
+            update short_url s set click_count = s.click_count + d.delta
+            from unnest(?::bigint[], ?::bigint[]) as d(id, delta)
+            where s.id = d.id""";
+
+    static final RowMapper<ShortUrlEntity> ROW_MAPPER = ShortUrlRepositoryCustomImpl::mapRow;
+    private static final RowMapper<UpsertedRow> UPSERTED_ROW_MAPPER =
+            (rs, rowNum) -> new UpsertedRow(mapRow(rs, rowNum), rs.getBoolean("inserted"));
+
+    private final JdbcTemplate jdbc;
+    private final JdbcTemplate analyticsJdbc;
+    private final ShortUrlIdAllocator ids;
+
+    ShortUrlRepositoryCustomImpl(JdbcTemplate jdbc, AnalyticsDatabase analytics, ShortUrlIdAllocator ids) {
+        this.jdbc = jdbc;
+        this.analyticsJdbc = analytics.jdbc();
+        this.ids = ids;
+    }
+
+    @Override
+    public Resolved findResolvedById(long id) {
+        return jdbc.query(SELECT_RESOLVED, rs -> rs.next()
+                ? new Resolved(id, rs.getString(1), rs.getBoolean(2), rs.getTimestamp(3).getTime())
+                : null, id);
+    }
+
+    @Override
+    public int addClickCounts(long[] ids, long[] deltas) {
+        if (ids.length != deltas.length) {
+            throw new IllegalArgumentException("addClickCounts: ids and deltas must have the same length");
+        }
+        if (ids.length == 0) return 0;
+        return analyticsJdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(ADD_CLICK_COUNTS);
+            ps.setArray(1, con.createArrayOf("int8", Arrays.stream(ids).boxed().toArray()));
+            ps.setArray(2, con.createArrayOf("int8", Arrays.stream(deltas).boxed().toArray()));
+            return ps;
+        });
+    }
+
+    @Override
+    public UpsertedRow upsert(String originalUrl, boolean previewEnabled, byte[] urlHash,
+                              OffsetDateTime createdAt, OffsetDateTime expiresAt) {
+        long[] id = new long[1];
+        ids.allocate(id);
+
+        List<UpsertedRow> rows = jdbc.query(UPSERT_ONE, UPSERTED_ROW_MAPPER,
+                id[0], originalUrl, previewEnabled, createdAt, expiresAt, urlHash, urlHash);
+
+        if (rows.isEmpty()) {
+            // The conflicting row was inserted by a transaction that committed after this statement's
+            // snapshot was taken; it is visible to a fresh statement.
+            rows = jdbc.query(SELECT_BY_HASH, UPSERTED_ROW_MAPPER, (Object) urlHash);
+        }
+        if (rows.isEmpty()) throw new IncorrectResultSizeDataAccessException(1, 0);
+
+        UpsertedRow row = rows.get(0);
+        if (!row.inserted()) ids.release(id[0]);
+        return row;
+    }
+
+    @Override
+    public List<UpsertedRow> upsertAll(List<String> originalUrls, List<Boolean> previewEnabled, List<byte[]> urlHashes,
+                                       OffsetDateTime createdAt, OffsetDateTime expiresAt) {
+        int n = urlHashes.size();
+        if (originalUrls.size() != n || previewEnabled.size() != n) {
+            throw new IllegalArgumentException("upsertAll: column lists must have the same size");
+        }
+        List<UpsertedRow> out = new ArrayList<>(n);
+        if (n == 0) return out;
+
+        long[] newIds = new long[n];
+        ids.allocate(newIds);
+
+        List<ShortUrlEntity> inserted = jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_MISSING);
+            ps.setObject(1, createdAt);
+            ps.setObject(2, expiresAt);
+            ps.setArray(3, con.createArrayOf("int8", Arrays.stream(newIds).boxed().toArray()));
+            ps.setArray(4, con.createArrayOf("text", originalUrls.toArray()));
+            ps.setArray(5, con.createArrayOf("bool", previewEnabled.toArray()));
+            ps.setArray(6, byteaArray(con, urlHashes));
+            return ps;
+        }, ROW_MAPPER);
+
+        Set<ByteBuffer> seen = new HashSet<>(inserted.size() * 2);
+        for (ShortUrlEntity e : inserted) {
+            out.add(new UpsertedRow(e, true));
+            seen.add(ByteBuffer.wrap(e.getUrlHash()));
+        }
+        if (inserted.size() == n) return out;
+
+        List<byte[]> missing = new ArrayList<>(n - inserted.size());
+        for (byte[] h : urlHashes) {
+            if (!seen.contains(ByteBuffer.wrap(h))) missing.add(h);
+        }
+        List<ShortUrlEntity> existing = jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_BY_HASHES);
+            ps.setArray(1, byteaArray(con, missing));
+            return ps;
+        }, ROW_MAPPER);
+        for (ShortUrlEntity e : existing) out.add(new UpsertedRow(e, false));
+        return out;
+    }
+
+    private static Array byteaArray(Connection con, List<byte[]> hashes) throws SQLException {
+        return con.createArrayOf("bytea", hashes.toArray(new byte[0][]));
+    }
+
+    private static ShortUrlEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+        ShortUrlEntity e = new ShortUrlEntity();
+        e.setId(rs.getLong("id"));
+        e.setOriginalUrl(rs.getString("original_url"));
+        e.setPreviewEnabled(rs.getBoolean("preview_enabled"));
+        e.setCreatedAt(rs.getObject("created_at", OffsetDateTime.class));
+        e.setExpiresAt(rs.getObject("expires_at", OffsetDateTime.class));
+        e.setClickCount(rs.getLong("click_count"));
+        e.setUrlHash(rs.getBytes("url_hash"));
+        return e;
+    }
+}
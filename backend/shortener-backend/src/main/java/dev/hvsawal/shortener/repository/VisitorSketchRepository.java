@@ -0,0 +1,105 @@
+package dev.hvsawal.shortener.repository;
+
+import dev.hvsawal.shortener.core.HyperLogLog;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * short_url_visitors: one serialized {@link HyperLogLog} per link (V8). Merges run on
+ * {@link AnalyticsDatabase}, reads on the main pool.
+ */
+@Repository
+public class VisitorSketchRepository {
+
+    // Rows for links that exist; a link deleted since its clicks were counted is skipped
+    private static final String INSERT_MISSING = """
+            insert into short_url_visitors (short_url_id, hll)
+            select s.id, ''::bytea from short_url s where s.id = any(?::bigint[])
+            on conflict (short_url_id) do nothing""";
+
+    private static final String LOCK_ROWS = """
+            select short_url_id, hll from short_url_visitors
+            where short_url_id = any(?::bigint[]) order by short_url_id for update""";
+
+    private static final String UPDATE_ROWS = """
+            update short_url_visitors v set hll = d.hll, updated_at = now()
+            from unnest(?::bigint[], ?::bytea[]) as d(id, hll)
+            where v.short_url_id = d.id""";
+
+    private static final String SELECT_ONE = "select hll from short_url_visitors where short_url_id = ?";
+
+    private final JdbcTemplate jdbc;
+    private final AnalyticsDatabase analytics;
+
+    public VisitorSketchRepository(JdbcTemplate jdbc, AnalyticsDatabase analytics) {
+        this.jdbc = jdbc;
+        this.analytics = analytics;
+    }
+
+    /**
+     * Merges {@code sketches[i]} into the stored sketch of {@code ids[i]}: three statements in one
+     * transaction, rows locked in id order so concurrent flushes from several nodes don't deadlock.
+     *
+     * @return number of links updated
+     */
+    public int mergeAll(long[] ids, HyperLogLog[] sketches) {
+        if (ids.length != sketches.length) {
+            throw new IllegalArgumentException("mergeAll: ids and sketches must have the same length");
+        }
+        if (ids.length == 0) return 0;
+        Integer updated = analytics.tx().execute(status -> merge(analytics.jdbc(), ids, sketches));
+        return updated == null ? 0 : updated;
+    }
+
+    private static int merge(JdbcTemplate jdbc, long[] ids, HyperLogLog[] sketches) {
+        Object[] boxedIds = Arrays.stream(ids).boxed().toArray();
+
+        jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_MISSING);
+            ps.setArray(1, con.createArrayOf("int8", boxedIds));
+            return ps;
+        });
+
+        Map<Long, byte[]> stored = new HashMap<>(ids.length * 2);
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(LOCK_ROWS);
+            ps.setArray(1, con.createArrayOf("int8", boxedIds));
+            return ps;
+        }, rs -> {
+            stored.put(rs.getLong(1), rs.getBytes(2));
+        });
+        if (stored.isEmpty()) return 0;
+
+        long[] updIds = new long[stored.size()];
+        byte[][] updHll = new byte[stored.size()][];
+        int n = 0;
+        for (int i = 0; i < ids.length; i++) {
+            byte[] current = stored.get(ids[i]);
+            if (current == null) continue;
+            HyperLogLog merged = HyperLogLog.fromBytes(current);
+            merged.merge(sketches[i]);
+            updIds[n] = ids[i];
+            updHll[n++] = merged.toBytes();
+        }
+        Object[] boxedUpd = Arrays.stream(updIds, 0, n).boxed().toArray();
+        byte[][] hlls = Arrays.copyOf(updHll, n);
+        return jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(UPDATE_ROWS);
+            ps.setArray(1, con.createArrayOf("int8", boxedUpd));
+            ps.setArray(2, con.createArrayOf("bytea", hlls));
+            return ps;
+        });
+    }
+
+    /** @return the stored sketch, empty if the link has none yet */
+    public HyperLogLog find(long id) {
+        List<byte[]> rows = jdbc.query(SELECT_ONE, (rs, i) -> rs.getBytes(1), id);
+        return HyperLogLog.fromBytes(rows.isEmpty() ? null : rows.getFirst());
+    }
+}
@@ -0,0 +1,91 @@
+package dev.hvsawal.shortener.service;
+
+import dev.hvsawal.shortener.service.ShortUrlService.Resolved;
+import dev.hvsawal.shortener.support.http.ETags;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The redirect response for one link, rendered once when the link enters the resolve cache
+ * rather than on every hit.
+ *
+ * <p>Plain links carry a {@code Location} value that is already known to be header-safe.
+ * Preview links carry the escaped interstitial page as UTF-8 bytes plus a strong ETag over those
+ * bytes; {@code body} is shared by every hit and must not be modified. Both carry the link's
+ * surrogate key.
+ */
+public record PreparedRedirect(Resolved link, String location, byte[] body, String etag, String surrogateKey) {
+
+    public static final String HTML_CONTENT_TYPE = "text/html;charset=UTF-8";
+
+    public static PreparedRedirect of(Resolved link, String surrogateKey) {
+        String location = headerSafe(link.originalUrl());
+        if (!link.previewEnabled()) return new PreparedRedirect(link, location, null, null, surrogateKey);
+
+        byte[] body = interstitialHtml(link.originalUrl()).getBytes(StandardCharsets.UTF_8);
+        String etag = ETags.strong(Long.toString(link.id(), 36), body);
+        return new PreparedRedirect(link, location, body, etag, surrogateKey);
+    }
+
+    public boolean preview() {
+        return body != null;
+    }
+
+    /**
+     * Stored URLs went through UrlNormalizer and are printable ASCII; anything else (legacy rows)
+     * is percent-encoded by URI so it can't break the header.
+     */
+    private static String headerSafe(String url) {
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c <= 0x20 || c >= 0x7f) return URI.create(url).toASCIIString();
+        }
+        return url;
+    }
+
+    private static String escapeHtml(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 16);
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '&' -> sb.append("&amp;");
+                case '<' -> sb.append("&lt;");
+                case '>' -> sb.append("&gt;");
+                case '"' -> sb.append("&quot;");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String interstitialHtml(String target) {
+        String escaped = escapeHtml(target);
+        return """
+        <!doctype html>
+        <html lang="en">
+          <head>
+            <meta charset="utf-8"/>
+            <meta name="viewport" content="width=device-width,initial-scale=1"/>
+            <title>Leaving this site</title>
+            <style>
+              body{font-family:system-ui,-apple-system,Segoe UI,Roboto,Arial,sans-serif;max-width:720px;margin:48px auto;padding:0 16px}
+              .card{border:1px solid #e5e7eb;border-radius:14px;padding:18px}
+              .muted{color:#6b7280;font-size:14px}
+              a.btn{display:inline-block;margin-top:12px;padding:10px 14px;border-radius:12px;background:#111827;color:#fff;text-decoration:none}
+              code{word-break:break-all}
+            </style>
+          </head>
+          <body>
+            <h2>You are leaving this site</h2>
+            <div class="card">
+              <div class="muted">Destination</div>
+              <code>%s</code>
+              <br/>
+              <a class="btn" href="%s" rel="noreferrer noopener">Continue</a>
+            </div>
+          </body>
+        </html>
+        """.formatted(escaped, escaped);
+    }
+}
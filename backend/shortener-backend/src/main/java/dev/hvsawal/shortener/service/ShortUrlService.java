@@ -1,11 +1,34 @@
 package dev.hvsawal.shortener.service;
 
+import dev.hvsawal.shortener.domain.ClickGranularity;
+import dev.hvsawal.shortener.dto.ClickSeriesResponse;
+import dev.hvsawal.shortener.dto.ShortenBatchResponse;
+import dev.hvsawal.shortener.dto.ShortenRequest;
 import dev.hvsawal.shortener.dto.ShortenUrlResponse;
 
+import java.time.Instant;
+import java.util.List;
+
 public interface ShortUrlService {
-    ShortenUrlResponse create(String url, boolean previewEnabled);
+    /** {@code clientKey} picks the per-client rate-limit bucket; null charges only the global one. */
+    ShortenUrlResponse create(String url, boolean previewEnabled, String clientKey);
+    ShortenBatchResponse createBatch(List<ShortenRequest> items, String clientKey);
     ShortenUrlResponse getMetadata(String code);
-    Resolved resolveForRedirect(String code);
+    PreparedRedirect resolveForRedirect(String code);
+
+    /**
+     * Clicks per bucket for one link, read from the click_bucket rollups. {@code from} is rounded
+     * down and {@code to} up to whole buckets; either may be {@code null} (defaults: the last 24
+     * hours, or the last hour at minute granularity). Expired links still have their history.
+     */
+    ClickSeriesResponse getClickSeries(String code, Instant from, Instant to, ClickGranularity granularity);
+
+    /** Drops one id from every resolve cache tier (L1, L2, negative) on this node. */
+    void evictCached(long id);
+
+    /** Drops everything from the in-memory resolve tiers (L1, negative); L2 is versioned separately. */
+    void evictAllCached();
 
-    record Resolved(long id, String originalUrl, boolean previewEnabled, java.time.OffsetDateTime expiresAt) {}
+    /** What a redirect needs; expiry as epoch millis so the hot path never touches java.time. */
+    record Resolved(long id, String originalUrl, boolean previewEnabled, long expiresAtEpochMillis) {}
 }
\ No newline at end of file
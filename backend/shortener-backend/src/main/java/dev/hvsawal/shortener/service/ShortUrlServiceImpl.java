@@ -1,152 +1,385 @@
 package dev.hvsawal.shortener.service;
 
-import dev.hvsawal.shortener.configuration.CacheConfiguration;
+import dev.hvsawal.shortener.cache.ResolveCache;
+import dev.hvsawal.shortener.cache.ResolveL2Cache;
+import dev.hvsawal.shortener.cache.ResolveNegativeCache;
 import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
 import dev.hvsawal.shortener.core.CodeCodec;
 import dev.hvsawal.shortener.core.UrlHash;
 import dev.hvsawal.shortener.core.UrlNormalizer;
+import dev.hvsawal.shortener.domain.ClickGranularity;
+import dev.hvsawal.shortener.domain.ErrorCode;
 import dev.hvsawal.shortener.domain.ShortUrlEntity;
+import dev.hvsawal.shortener.dto.ClickSeriesResponse;
+import dev.hvsawal.shortener.dto.ShortenBatchResponse;
+import dev.hvsawal.shortener.dto.ShortenRequest;
 import dev.hvsawal.shortener.dto.ShortenUrlResponse;
+import dev.hvsawal.shortener.repository.ClickBucketRepository;
+import dev.hvsawal.shortener.repository.ShortUrlIdRange;
 import dev.hvsawal.shortener.repository.ShortUrlRepository;
+import dev.hvsawal.shortener.repository.ShortUrlRepositoryCustom.UpsertedRow;
+import dev.hvsawal.shortener.repository.VisitorSketchRepository;
 import dev.hvsawal.shortener.support.errors.CodeNotFoundException;
+import dev.hvsawal.shortener.support.errors.InvalidRequestException;
 import dev.hvsawal.shortener.support.errors.RateLimitedException;
 import dev.hvsawal.shortener.support.errors.ServiceUnavailableException;
+import dev.hvsawal.shortener.support.errors.ShortenerException;
 import dev.hvsawal.shortener.support.errors.UrlExpiredException;
+import dev.hvsawal.shortener.support.http.HttpCachePolicy;
 import dev.hvsawal.shortener.support.resilience.DbBulkhead;
-import dev.hvsawal.shortener.support.resilience.SimpleRateLimiter;
-import org.springframework.cache.annotation.Cacheable;
+import dev.hvsawal.shortener.support.resilience.ShortenRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.dao.CannotAcquireLockException;
-import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.TransientDataAccessException;
 import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 @Service
 public class ShortUrlServiceImpl implements ShortUrlService {
 
+    private static final Logger log = LoggerFactory.getLogger(ShortUrlServiceImpl.class);
+
+    private static final Instant SERIES_MIN = Instant.EPOCH;
+    private static final Instant SERIES_MAX = Instant.parse("9999-12-31T23:59:59Z");
+
     private final ShortUrlRepository repo;
     private final CodeCodec codec;
     private final ShortenerConfigurationProperties props;
     private final DbBulkhead bulkhead;
-    private final SimpleRateLimiter rateLimiter;
+    private final ShortenRateLimiter rateLimiter;
+    private final ResolveL2Cache l2;
+    private final ResolveNegativeCache negative;
+    private final ShortUrlIdRange idRange;
+    private final ResolveCache resolveCache;
+    private final ClickBucketRepository clickBuckets;
+    private final VisitorSketchRepository visitorSketches;
+    // Retries only the DB write of a create, never the rate-limit charge in front of it
+    private final RetryTemplate writeRetry = RetryTemplate.builder()
+            .maxAttempts(3)
+            .exponentialBackoff(50, 3, 400, true)
+            .retryOn(List.of(TransientDataAccessException.class, CannotGetJdbcConnectionException.class,
+                    CannotAcquireLockException.class))
+            .build();
 
     public ShortUrlServiceImpl(ShortUrlRepository repo, CodeCodec codec, ShortenerConfigurationProperties props,
-                               DbBulkhead bulkhead, SimpleRateLimiter rateLimiter) {
+                               DbBulkhead bulkhead, ShortenRateLimiter rateLimiter, ResolveL2Cache l2,
+                               ResolveNegativeCache negative, ShortUrlIdRange idRange, MeterRegistry registry,
+                               ClickBucketRepository clickBuckets, VisitorSketchRepository visitorSketches) {
         this.repo = repo;
+        this.clickBuckets = clickBuckets;
+        this.visitorSketches = visitorSketches;
         this.codec = codec;
         this.props = props;
         this.bulkhead = bulkhead;
         this.rateLimiter = rateLimiter;
+        this.l2 = l2;
+        this.negative = negative;
+        this.idRange = idRange;
+        this.resolveCache = new ResolveCache(props.cache(), this::loadResolved, this::reloadResolved, this::render, registry);
     }
 
     @Override
-    @Transactional
-    @Retryable(
-            retryFor = {TransientDataAccessException.class, CannotGetJdbcConnectionException.class, CannotAcquireLockException.class},
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 50, maxDelay = 400, multiplier = 3, random = true)
-    )
-    public ShortenUrlResponse create(String url, boolean previewEnabled) {
-        if (!rateLimiter.tryConsume()) {
-            throw new RateLimitedException("Rate limit exceeded. Try again soon.", rateLimiter.retryAfterSeconds());
+    public ShortenUrlResponse create(String url, boolean previewEnabled, String clientKey) {
+        int retryAfter = rateLimiter.tryAcquire(clientKey, 1);
+        if (retryAfter > 0) {
+            throw new RateLimitedException("Rate limit exceeded. Try again soon.", retryAfter);
         }
 
-        try (var permit = bulkhead.tryAcquireShorten()) {
-            if (!permit.acquired()) {
-                throw new RateLimitedException("System is busy. Try again soon.", 1);
-            }
+        String normalized = UrlNormalizer.normalize(url);
 
-            String normalized = UrlNormalizer.normalize(url);
+        // Option A dedup key (same normalized url + previewEnabled => same urlHash)
+        byte[] urlHash = UrlHash.sha256(normalized, previewEnabled);
 
-            // Option A dedup key (same normalized url + previewEnabled => same urlHash)
-            String urlHash = UrlHash.sha256Hex(normalized, previewEnabled);
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime expires = now.plusYears(props.expirationYears());
 
-            // 1) Fast path: already exists -> return same code
-            Optional<ShortUrlEntity> existing = repo.findByUrlHash(urlHash);
-            if (existing.isPresent()) {
-                ShortUrlEntity e = existing.get();
-                String code = codec.encodeId(e.getId());
-                // createdNew = false (or whatever your boolean means)
-                return toResponse(e, code, props.publicBaseUrl(), false);
+        // One statement: insert unless the urlHash exists, return the stored row either way.
+        // Concurrent creates of the same URL converge on one row without a constraint-violation retry.
+        UpsertedRow row = writeRetry.execute(ctx -> {
+            try (var permit = bulkhead.tryAcquireShorten()) {
+                if (!permit.acquired()) {
+                    throw new RateLimitedException("System is busy. Try again soon.", 1);
+                }
+                return repo.upsert(normalized, previewEnabled, urlHash, now, expires);
             }
+        });
+        ShortUrlEntity e = row.entity();
+        if (row.inserted()) negative.invalidate(e.getId());
+        return toResponse(e, codec.encodeId(e.getId()), props.publicBaseUrl(), row.inserted());
+    }
+
+    @Override
+    public ShortenBatchResponse createBatch(List<ShortenRequest> items, String clientKey) {
+        // Charged per item, so a batch of N costs the same budget as N single creates
+        int retryAfter = rateLimiter.tryAcquire(clientKey, items.size());
+        if (retryAfter > 0) {
+            throw new RateLimitedException("Rate limit exceeded. Try again soon.", retryAfter);
+        }
 
-            // 2) Insert new
-            OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
-            OffsetDateTime expires = now.plusYears(props.expirationYears());
+        // CPU-only work first, without holding a DB permit
+        PreparedItem[] prepared = new PreparedItem[items.size()];
+        IntStream.range(0, prepared.length).parallel().forEach(i -> prepared[i] = prepare(items.get(i)));
 
+        // One row per distinct dedup key; repeats inside the batch share it
+        Map<ByteBuffer, PreparedItem> distinct = new LinkedHashMap<>();
+        for (PreparedItem p : prepared) {
+            if (p.error() == null) distinct.putIfAbsent(ByteBuffer.wrap(p.urlHash()), p);
+        }
+
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        OffsetDateTime expires = now.plusYears(props.expirationYears());
+
+        // Two statements per chunk (insert missing + select existing); each chunk holds one DB permit
+        // and is retried on its own. Chunks commit independently: if one fails after others have
+        // committed, the request still succeeds and the items not written carry an error.
+        List<PreparedItem> keys = new ArrayList<>(distinct.values());
+        Map<ByteBuffer, UpsertedRow> rows = new HashMap<>(keys.size() * 2);
+        int chunkSize = Math.max(1, props.batch().chunkSize());
+        for (int from = 0; from < keys.size(); from += chunkSize) {
+            List<PreparedItem> chunk = keys.subList(from, Math.min(keys.size(), from + chunkSize));
+
+            List<UpsertedRow> upserted;
             try {
-                ShortUrlEntity saved = repo.save(
-                        new ShortUrlEntity(
-                                normalized,
-                                previewEnabled,
+                upserted = writeRetry.execute(ctx -> {
+                    try (var permit = bulkhead.tryAcquireShorten()) {
+                        if (!permit.acquired()) {
+                            throw new RateLimitedException("System is busy. Try again soon.", 1);
+                        }
+                        return repo.upsertAll(
+                                chunk.stream().map(PreparedItem::normalized).toList(),
+                                chunk.stream().map(PreparedItem::previewEnabled).toList(),
+                                chunk.stream().map(PreparedItem::urlHash).toList(),
                                 now,
-                                expires,
-                                urlHash
-                        )
-                );
-
-                String code = codec.encodeId(saved.getId());
-                return toResponse(saved, code, props.publicBaseUrl(), true);
-
-            } catch (DataIntegrityViolationException e) {
-                // Race: another request inserted same urlHash between our SELECT and INSERT.
-                // Return the existing row.
-                ShortUrlEntity winner = repo.findByUrlHash(urlHash)
-                        .orElseThrow(() -> e);
-
-                String code = codec.encodeId(winner.getId());
-                return toResponse(winner, code, props.publicBaseUrl(), false);
+                                expires
+                        );
+                    }
+                });
+            } catch (RuntimeException ex) {
+                if (rows.isEmpty()) throw ex; // nothing written yet: fail the whole request
+                log.warn("Batch create stopped after {} of {} distinct URLs; the rest are answered with per-item errors. {}",
+                        from, keys.size(), ex.toString());
+                break;
+            }
+            for (UpsertedRow r : upserted) {
+                rows.put(ByteBuffer.wrap(r.entity().getUrlHash()), r);
+                if (r.inserted()) negative.invalidate(r.entity().getId());
+            }
+        }
+
+        List<ShortenBatchResponse.Item> out = new ArrayList<>(prepared.length);
+        for (PreparedItem p : prepared) {
+            if (p.error() != null) {
+                out.add(new ShortenBatchResponse.Item(null, p.error().code().name(), p.error().getMessage()));
+                continue;
+            }
+            UpsertedRow r = rows.get(ByteBuffer.wrap(p.urlHash()));
+            if (r == null) {
+                // Its chunk failed after earlier ones committed (or the row vanished between insert and select)
+                out.add(new ShortenBatchResponse.Item(null, ErrorCode.SERVICE_UNAVAILABLE.name(), "Not saved. Please retry this item."));
+                continue;
             }
+            ShortUrlEntity e = r.entity();
+            out.add(new ShortenBatchResponse.Item(
+                    toResponse(e, codec.encodeId(e.getId()), props.publicBaseUrl(), r.inserted()), null, null));
         }
+        return new ShortenBatchResponse(out);
     }
 
+    private static PreparedItem prepare(ShortenRequest req) {
+        boolean preview = req.preview() != null && req.preview();
+        try {
+            String normalized = UrlNormalizer.normalize(req.url());
+            return new PreparedItem(normalized, preview, UrlHash.sha256(normalized, preview), null);
+        } catch (ShortenerException e) {
+            return new PreparedItem(null, preview, null, e);
+        }
+    }
+
+    private record PreparedItem(String normalized, boolean previewEnabled, byte[] urlHash, ShortenerException error) {}
+
     @Override
     @Transactional(readOnly = true)
     public ShortenUrlResponse getMetadata(String code) {
         long id = decode(code);
+        rejectKnownDead(id);
 
         try (var permit = bulkhead.tryAcquireResolve()) {
             if (!permit.acquired()) {
                 throw new ServiceUnavailableException("Service overloaded. Please retry.");
             }
 
-            ShortUrlEntity e = repo.findById(id).orElseThrow(() -> new CodeNotFoundException("Code not found"));
-            if (isExpired(e.getExpiresAt())) throw new UrlExpiredException("URL is expired");
+            ShortUrlEntity e = repo.findById(id).orElse(null);
+            if (e == null) {
+                negative.markMissing(id);
+                throw new CodeNotFoundException("Code not found");
+            }
+            if (isExpired(e.getExpiresAt())) {
+                negative.markExpired(id);
+                throw new UrlExpiredException("URL is expired");
+            }
             String computed = codec.encodeId(e.getId());
-            return toResponse(e, computed, props.publicBaseUrl(), false);
+            long visitors = visitorSketches.find(id).estimate();
+            return toResponse(e, computed, props.publicBaseUrl(), false, visitors);
         }
     }
 
     @Override
-    @Cacheable(cacheNames = CacheConfiguration.RESOLVE_CACHE, key = "#code")
-    @Transactional(readOnly = true)
+    public ClickSeriesResponse getClickSeries(String code, Instant from, Instant to, ClickGranularity granularity) {
+        long id = decode(code);
+        if (!idRange.mayExist(id) || negative.get(id) == ErrorCode.CODE_NOT_FOUND) {
+            throw new CodeNotFoundException("Code not found");
+        }
+
+        long width = granularity.width().toMillis();
+        long end = to != null ? ceil(seriesMillis("to", to), width) : ceil(System.currentTimeMillis(), width);
+        long start = from != null
+                ? granularity.floor(seriesMillis("from", from))
+                : end - (granularity == ClickGranularity.MINUTE ? Duration.ofHours(1) : Duration.ofDays(1)).toMillis();
+        if (start >= end) {
+            throw new InvalidRequestException("'from' must be before 'to'");
+        }
+        long points = (end - start) / width;
+        if (points > granularity.maxPoints()) {
+            throw new InvalidRequestException("Range too long: at most " + granularity.maxPoints() + " "
+                    + granularity.name().toLowerCase() + " buckets per request");
+        }
+
+        OffsetDateTime fromTs = utc(start);
+        OffsetDateTime toTs = utc(end);
+        List<ClickBucketRepository.Bucket> stored;
+        try (var permit = bulkhead.tryAcquireResolve()) {
+            if (!permit.acquired()) {
+                throw new ServiceUnavailableException("Service overloaded. Please retry.");
+            }
+            if (repo.findResolvedById(id) == null) {
+                negative.markMissing(id);
+                throw new CodeNotFoundException("Code not found");
+            }
+            stored = clickBuckets.findRange(id, granularity, fromTs, toTs);
+        }
+
+        // Dense series: one point per bucket, zero where nothing was stored
+        List<ClickSeriesResponse.Point> out = new ArrayList<>((int) points);
+        long total = 0;
+        int next = 0;
+        for (long t = start; t < end; t += width) {
+            long clicks = 0;
+            if (next < stored.size() && stored.get(next).start().toInstant().toEpochMilli() == t) {
+                clicks = stored.get(next++).clicks();
+            }
+            total += clicks;
+            out.add(new ClickSeriesResponse.Point(utc(t), clicks));
+        }
+        return new ClickSeriesResponse(code, granularity.name().toLowerCase(), fromTs, toTs, total, out);
+    }
+
+    /** Valid ISO-8601 can be far outside epoch millis; nothing outside these years has clicks anyway. */
+    private static long seriesMillis(String name, Instant t) {
+        if (t.isBefore(SERIES_MIN) || t.isAfter(SERIES_MAX)) {
+            throw new InvalidRequestException("'" + name + "' must be between " + SERIES_MIN + " and " + SERIES_MAX);
+        }
+        return t.toEpochMilli();
+    }
+
+    private static long ceil(long epochMillis, long width) {
+        return Math.floorDiv(epochMillis + width - 1, width) * width;
+    }
+
+    private static OffsetDateTime utc(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atOffset(ZoneOffset.UTC);
+    }
+
+    @Override
     @Retryable(
             retryFor = {TransientDataAccessException.class, CannotGetJdbcConnectionException.class},
             maxAttempts = 2,
             backoff = @Backoff(delay = 50, maxDelay = 150, multiplier = 2, random = true)
     )
-    public Resolved resolveForRedirect(String code) {
-        long id = decode(code);
+    public PreparedRedirect resolveForRedirect(String code) {
+        return resolveCache.get(decode(code));
+    }
+
+    @Override
+    public void evictCached(long id) {
+        resolveCache.invalidate(id);
+        l2.invalidate(id);
+        negative.invalidate(id);
+    }
+
+    @Override
+    public void evictAllCached() {
+        resolveCache.invalidateAll();
+        negative.invalidateAll();
+    }
+
+    /** L1 miss: memory filters, then L2, then the DB. */
+    private Resolved loadResolved(long id) {
+        rejectKnownDead(id);
+
+        // L2 returns only unexpired entries and needs no DB permit
+        Resolved cached = l2.get(id);
+        if (cached != null) return cached;
+
+        return loadFromDb(id);
+    }
+
+    /** L1 refresh-ahead: straight to the DB, so the refreshed value is current. */
+    private Resolved reloadResolved(long id) {
+        return loadFromDb(id);
+    }
 
+    private Resolved loadFromDb(long id) {
         try (var permit = bulkhead.tryAcquireResolve()) {
             if (!permit.acquired()) {
                 throw new ServiceUnavailableException("Service overloaded. Please retry.");
             }
 
-            ShortUrlEntity e = repo.findById(id).orElseThrow(() -> new CodeNotFoundException("Code not found"));
-            if (isExpired(e.getExpiresAt())) throw new UrlExpiredException("URL is expired");
-
-            return new Resolved(e.getId(), e.getOriginalUrl(), e.isPreviewEnabled(), e.getExpiresAt());
+            // Plain JDBC on a single autocommit statement: no entity, no transaction (cache misses set redirect p99)
+            long l2Stamp = l2.stamp(id);
+            Resolved r = repo.findResolvedById(id);
+            if (r == null) {
+                negative.markMissing(id);
+                throw new CodeNotFoundException("Code not found");
+            }
+            if (r.expiresAtEpochMillis() < System.currentTimeMillis()) {
+                negative.markExpired(id);
+                throw new UrlExpiredException("URL is expired");
+            }
+            l2.put(r, l2Stamp);
+            return r;
         }
     }
 
+    private PreparedRedirect render(Resolved r) {
+        return PreparedRedirect.of(r, HttpCachePolicy.surrogateKey(codec.encodeId(r.id())));
+    }
+
+    /** Answers from memory for ids that can't exist or recently didn't; no permit, no DB. */
+    private void rejectKnownDead(long id) {
+        if (!idRange.mayExist(id)) throw new CodeNotFoundException("Code not found");
+        ErrorCode known = negative.get(id);
+        if (known == ErrorCode.CODE_NOT_FOUND) throw new CodeNotFoundException("Code not found");
+        if (known == ErrorCode.URL_EXPIRED) throw new UrlExpiredException("URL is expired");
+    }
+
     private long decode(String code) {
         try {
             return codec.decodeToId(code);
@@ -161,6 +394,11 @@ public class ShortUrlServiceImpl implements ShortUrlService {
     }
 
     private ShortenUrlResponse toResponse(ShortUrlEntity e, String code, String base, boolean omitClickCount) {
+        return toResponse(e, code, base, omitClickCount, null);
+    }
+
+    private ShortenUrlResponse toResponse(ShortUrlEntity e, String code, String base, boolean omitClickCount,
+                                          Long uniqueVisitors) {
         String shortUrl = stripTrailingSlash(base) + "/" + code;
         return new ShortenUrlResponse(
                 code,
@@ -169,7 +407,8 @@ public class ShortUrlServiceImpl implements ShortUrlService {
                 e.isPreviewEnabled(),
                 e.getCreatedAt(),
                 e.getExpiresAt(),
-                omitClickCount ? null : e.getClickCount()
+                omitClickCount ? null : e.getClickCount(),
+                uniqueVisitors
         );
     }
 
@@ -25,10 +25,13 @@ public class GlobalExceptionHandler {
 
     private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
 
+    // per error code; expected errors can arrive at redirect rates
+    private final LogThrottle shortenerLogThrottle = new LogThrottle(20);
+
     @ExceptionHandler(ShortenerException.class)
     public ResponseEntity<ProblemDetail> handleShortener(ShortenerException ex, HttpServletRequest req) {
         HttpStatus status = switch (ex.code()) {
-            case INVALID_URL -> HttpStatus.BAD_REQUEST;
+            case INVALID_URL, INVALID_REQUEST -> HttpStatus.BAD_REQUEST;
             case CODE_NOT_FOUND -> HttpStatus.NOT_FOUND;
             case URL_EXPIRED -> HttpStatus.GONE;
             case RATE_LIMITED -> HttpStatus.TOO_MANY_REQUESTS;
@@ -36,9 +39,12 @@ public class GlobalExceptionHandler {
             default -> HttpStatus.INTERNAL_SERVER_ERROR;
         };
 
-        // log (no stack trace for expected domain errors)
-        log.warn("Handled shortener error code={} status={} path={} requestId={}",
-                ex.code(), status.value(), req.getRequestURI(), MDC.get(RequestIdFilter.MDC_KEY));
+        // log (no stack trace for expected domain errors), rate-limited per code
+        long suppressed = shortenerLogThrottle.tryAcquire(ex.code());
+        if (suppressed >= 0) {
+            log.warn("Handled shortener error code={} status={} path={} requestId={} suppressedSinceLast={}",
+                    ex.code(), status.value(), req.getRequestURI(), MDC.get(RequestIdFilter.MDC_KEY), suppressed);
+        }
 
         ProblemDetail pd = ProblemDetail.forStatusAndDetail(status, ex.getMessage());
         pd.setTitle(ex.code().name());
@@ -0,0 +1,10 @@
+package dev.hvsawal.shortener.support.errors;
+
+import dev.hvsawal.shortener.domain.ErrorCode;
+
+/** Malformed query parameters (anything but the URL itself, which has {@link InvalidUrlException}). */
+public final class InvalidRequestException extends ShortenerException {
+    public InvalidRequestException(String message) {
+        super(ErrorCode.INVALID_REQUEST, message);
+    }
+}
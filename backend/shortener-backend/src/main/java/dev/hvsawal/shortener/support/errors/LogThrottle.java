@@ -0,0 +1,45 @@
+package dev.hvsawal.shortener.support.errors;
+
+import dev.hvsawal.shortener.domain.ErrorCode;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps log lines per {@link ErrorCode} per second, so a flood of expected errors (scanners
+ * walking random codes) can't turn into a logging bottleneck. Counts what it drops.
+ */
+final class LogThrottle {
+
+    private final int perSecond;
+    private final Window[] windows = new Window[ErrorCode.values().length];
+
+    LogThrottle(int perSecond) {
+        this.perSecond = perSecond;
+        for (int i = 0; i < windows.length; i++) windows[i] = new Window();
+    }
+
+    /**
+     * @return {@code -1} if this line should be dropped, otherwise how many lines for this code
+     * were dropped since the last one let through
+     */
+    long tryAcquire(ErrorCode code) {
+        Window w = windows[code.ordinal()];
+        long second = System.currentTimeMillis() / 1000;
+        long current = w.second.get();
+        if (current != second && w.second.compareAndSet(current, second)) {
+            w.used.set(0);
+        }
+        if (w.used.incrementAndGet() <= perSecond) {
+            return w.dropped.getAndSet(0);
+        }
+        w.dropped.incrementAndGet();
+        return -1;
+    }
+
+    private static final class Window {
+        final AtomicLong second = new AtomicLong();
+        final AtomicInteger used = new AtomicInteger();
+        final AtomicLong dropped = new AtomicLong();
+    }
+}
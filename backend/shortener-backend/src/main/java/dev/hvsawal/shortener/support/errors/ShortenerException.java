@@ -2,11 +2,15 @@ package dev.hvsawal.shortener.support.errors;
 
 import dev.hvsawal.shortener.domain.ErrorCode;
 
+/**
+ * Expected, client-facing failures. Stackless: they are thrown on hot paths (e.g. scanners hitting
+ * random codes), always handled by GlobalExceptionHandler and never logged with a trace.
+ */
 public abstract class ShortenerException extends RuntimeException {
     private final ErrorCode code;
 
     protected ShortenerException(ErrorCode code, String message) {
-        super(message);
+        super(message, null, false, false);
         this.code = code;
     }
 
@@ -0,0 +1,34 @@
+package dev.hvsawal.shortener.support.http;
+
+import dev.hvsawal.shortener.core.UrlHash;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Strong entity tags: {@code "<prefix>-<SHA-256, first 128 bits, base64url>"} over exactly what is
+ * sent, so equal tags mean byte-identical responses. A cryptographic hash, not a checksum: a
+ * retargeted link must never come out with its old tag, or caches revalidating it would get a 304
+ * for the stale redirect. The prefix names the resource.
+ */
+public final class ETags {
+
+    private static final int TAG_BYTES = 16;
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+
+    private ETags() {}
+
+    public static String strong(String prefix, byte[] representation) {
+        byte[] digest = UrlHash.sha256(representation);
+        byte[] tag = new byte[TAG_BYTES];
+        System.arraycopy(digest, 0, tag, 0, TAG_BYTES);
+        return "\"" + prefix + "-" + B64.encodeToString(tag) + "\"";
+    }
+
+    /** For representations rendered later (JSON): tag the fields they are rendered from instead. */
+    public static String strong(String prefix, Object... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (Object f : fields) sb.append(f).append('\u0000');
+        return strong(prefix, sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
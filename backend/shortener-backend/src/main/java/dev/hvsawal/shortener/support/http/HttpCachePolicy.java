@@ -0,0 +1,68 @@
+package dev.hvsawal.shortener.support.http;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deployment-wide caching policy for link responses (redirects and interstitials), from
+ * {@code shortener.redirect}: which redirect status to send, {@code Cache-Control} capped by the
+ * link's remaining lifetime, and the surrogate-key header a CDN can purge by.
+ */
+@Component
+public class HttpCachePolicy {
+
+    private final int redirectStatus;
+    private final int maxAge;
+    private final int sharedMaxAge;
+    private final String surrogateKeyHeader;
+
+    /** Header for links that outlive both max-ages, i.e. almost all of them; built once. */
+    private final String fullCacheControl;
+
+    public HttpCachePolicy(ShortenerConfigurationProperties props) {
+        var r = props.redirect();
+        this.redirectStatus = r != null ? r.status() : 302;
+        if (redirectStatus != 301 && redirectStatus != 302 && redirectStatus != 307 && redirectStatus != 308) {
+            throw new IllegalStateException("shortener.redirect.status must be 301, 302, 307 or 308, was " + redirectStatus);
+        }
+        this.maxAge = r != null ? Math.max(0, r.maxAgeSeconds()) : 0;
+        this.sharedMaxAge = r != null ? Math.max(0, r.sharedMaxAgeSeconds()) : 0;
+        this.surrogateKeyHeader = r != null && r.surrogateKeyHeader() != null && !r.surrogateKeyHeader().isBlank()
+                ? r.surrogateKeyHeader() : null;
+        this.fullCacheControl = build(maxAge, sharedMaxAge);
+    }
+
+    public int redirectStatus() {
+        return redirectStatus;
+    }
+
+    /**
+     * @return the Cache-Control value for a link expiring at {@code expiresAtEpochMillis}, or
+     * {@code null} to send none
+     */
+    public String cacheControl(long expiresAtEpochMillis) {
+        if (maxAge == 0 && sharedMaxAge == 0) {
+            // Browsers keep 301/308 indefinitely unless told otherwise
+            return redirectStatus == 301 || redirectStatus == 308 ? "no-cache" : null;
+        }
+        long remaining = Math.max(0, (expiresAtEpochMillis - System.currentTimeMillis()) / 1000);
+        if (remaining >= Math.max(maxAge, sharedMaxAge)) return fullCacheControl;
+        return build((int) Math.min(maxAge, remaining), (int) Math.min(sharedMaxAge, remaining));
+    }
+
+    /** @return the header name, or {@code null} when surrogate keys are disabled */
+    public String surrogateKeyHeader() {
+        return surrogateKeyHeader;
+    }
+
+    /** One key per link, from its canonical code (V1 and V2 codes of a link share it). */
+    public static String surrogateKey(String canonicalCode) {
+        return "link-" + canonicalCode;
+    }
+
+    private static String build(int maxAge, int sharedMaxAge) {
+        if (maxAge == 0 && sharedMaxAge == 0) return "no-cache"; // about to expire
+        String cc = "public, max-age=" + maxAge;
+        return sharedMaxAge != maxAge ? cc + ", s-maxage=" + sharedMaxAge : cc;
+    }
+}
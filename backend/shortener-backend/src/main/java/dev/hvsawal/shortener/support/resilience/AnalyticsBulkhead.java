@@ -0,0 +1,45 @@
+package dev.hvsawal.shortener.support.resilience;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.repository.AnalyticsDatabase;
+import dev.hvsawal.shortener.support.resilience.DbBulkhead.Permit;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Permits for the analytics pool ({@link AnalyticsDatabase}), one per connection, separate from
+ * {@link DbBulkhead}. Click-count flushes ({@link #tryAcquireFlush()}) may wait briefly and can
+ * use every permit; background work ({@link #tryAcquireBackground()}) never waits and leaves one
+ * permit free (if there is more than one), so it can't delay a click flush.
+ */
+@Component
+public class AnalyticsBulkhead {
+
+    private final Semaphore sem;
+    private final long flushWaitMs;
+    private final int reserved;
+
+    public AnalyticsBulkhead(ShortenerConfigurationProperties props) {
+        var db = props.clickcount().db();
+        int permits = AnalyticsDatabase.poolSize(props);
+        this.sem = new Semaphore(permits);
+        this.reserved = permits > 1 ? 1 : 0;
+        this.flushWaitMs = db != null ? Math.max(0, db.acquireTimeoutMs()) : 0;
+    }
+
+    public Permit tryAcquireFlush() {
+        try {
+            return new Permit(sem.tryAcquire(flushWaitMs, TimeUnit.MILLISECONDS), sem);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Permit(false, sem);
+        }
+    }
+
+    public Permit tryAcquireBackground() {
+        if (sem.availablePermits() <= reserved) return new Permit(false, sem);
+        return new Permit(sem.tryAcquire(), sem);
+    }
+}
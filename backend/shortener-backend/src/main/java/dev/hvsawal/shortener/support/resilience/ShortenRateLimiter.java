@@ -0,0 +1,130 @@
+package dev.hvsawal.shortener.support.resilience;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.support.errors.InvalidRequestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Create budget ({@code shortener.ratelimit}): a {@link TokenBucket} per client, then the global
+ * bucket as an outer cap, so one client can't spend everyone's budget. Both refill continuously
+ * (no window-boundary double bursts) and cost one CAS each; nothing here takes a lock.
+ *
+ * <p>Client buckets live in a bounded Caffeine map and expire once idle long enough to be full
+ * again, so expiry never hands out extra tokens. Only eviction at {@code max-clients} does, which
+ * is why the client key is the remote address (resolved through trusted proxies by
+ * {@code server.forward-headers-strategy}) unless {@code api-key-header} is configured:
+ * set it only when something in front authenticates that header, or callers can mint fresh
+ * buckets by inventing keys.
+ */
+@Component
+public class ShortenRateLimiter {
+
+    private static final int MAX_API_KEY_LENGTH = 128;
+
+    private final TokenBucket global;
+    private final Cache<String, TokenBucket> clients; // null: global limit only
+    private final long clientPerMinute;
+    private final long clientBurst;
+    private final String apiKeyHeader;
+    private final int maxPermits;
+
+    private final Counter clientRejected;
+    private final Counter globalRejected;
+
+    public ShortenRateLimiter(ShortenerConfigurationProperties props, MeterRegistry registry) {
+        var rl = props.ratelimit();
+        long perMinute = Math.max(1, rl.shortenPerMinute());
+        long globalBurst = rl.burst() > 0 ? rl.burst() : perMinute;
+        this.global = new TokenBucket(perMinute, globalBurst, System.nanoTime());
+
+        var pc = rl.perClient();
+        boolean perClient = pc != null && pc.enabled();
+        this.clientPerMinute = perClient ? Math.max(1, pc.shortenPerMinute()) : 1;
+        this.clientBurst = perClient && pc.burst() > 0 ? pc.burst() : clientPerMinute;
+        this.apiKeyHeader = perClient && pc.apiKeyHeader() != null && !pc.apiKeyHeader().isBlank()
+                ? pc.apiKeyHeader().trim() : null;
+        long idleNanos = TokenBucket.refillNanos(clientPerMinute, clientBurst);
+        this.clients = perClient
+                ? Caffeine.newBuilder()
+                        .maximumSize(pc.maxClients() > 0 ? pc.maxClients() : 100_000)
+                        .expireAfterAccess(Duration.ofNanos(idleNanos))
+                        .build()
+                : null;
+        this.maxPermits = (int) Math.min(Integer.MAX_VALUE, perClient ? Math.min(clientBurst, globalBurst) : globalBurst);
+
+        this.clientRejected = Counter.builder("shortener_ratelimit_client_rejected_total")
+                .description("Creates refused by a per-client bucket")
+                .register(registry);
+        this.globalRejected = Counter.builder("shortener_ratelimit_global_rejected_total")
+                .description("Creates refused by the global bucket")
+                .register(registry);
+        if (clients != null) {
+            Gauge.builder("shortener_ratelimit_clients", clients, Cache::estimatedSize)
+                    .description("Client buckets currently tracked")
+                    .register(registry);
+        }
+    }
+
+    /** {@code key:<api key>} when the configured header is present, else {@code ip:<remote address>}. */
+    public String clientKey(HttpServletRequest request) {
+        if (apiKeyHeader != null) {
+            String key = request.getHeader(apiKeyHeader);
+            if (key != null && !key.isBlank() && key.length() <= MAX_API_KEY_LENGTH) return "key:" + key.trim();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    /** Largest {@code permits} that can ever be admitted: the smaller of the client and global bursts. */
+    public int maxPermits() {
+        return maxPermits;
+    }
+
+    /**
+     * Takes {@code permits} tokens (e.g. one per batch item) from {@code clientKey}'s bucket and the
+     * global one, all or nothing. A null key is charged to the global bucket only.
+     *
+     * @return 0 if admitted, otherwise seconds to wait (for Retry-After)
+     * @throws InvalidRequestException if {@code permits} exceeds {@link #maxPermits()}: waiting
+     *         would never help, so there is no Retry-After to give
+     */
+    public int tryAcquire(String clientKey, int permits) {
+        return tryAcquire(clientKey, permits, System.nanoTime());
+    }
+
+    int tryAcquire(String clientKey, int permits, long now) {
+        if (permits > maxPermits) {
+            throw new InvalidRequestException(
+                    "At most " + maxPermits + " items per request under the current rate limit, got " + permits);
+        }
+        TokenBucket client = clients != null && clientKey != null
+                ? clients.get(clientKey, k -> new TokenBucket(clientPerMinute, clientBurst, now))
+                : null;
+
+        if (client != null) {
+            long wait = client.tryAcquire(permits, now);
+            if (wait > 0) {
+                clientRejected.increment();
+                return seconds(wait);
+            }
+        }
+        long wait = global.tryAcquire(permits, now);
+        if (wait > 0) {
+            if (client != null) client.release(permits);
+            globalRejected.increment();
+            return seconds(wait);
+        }
+        return 0;
+    }
+
+    private static int seconds(long nanos) {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, (nanos + 999_999_999L) / 1_000_000_000L));
+    }
+}
@@ -0,0 +1,56 @@
+package dev.hvsawal.shortener.support.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket with continuous refill, kept as a single "theoretical arrival time" (GCRA): the
+ * instant at which the bucket would be full again. Taking {@code n} tokens moves it forward by
+ * {@code n} refill intervals; the take is refused when that would put it more than
+ * {@code burst} intervals ahead of now. One CAS per call, no lock, no refill timer.
+ *
+ * <p>Times are {@link System#nanoTime()} values, compared by subtraction.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos; // time to refill one token
+    private final long toleranceNanos; // burst * intervalNanos
+    private final AtomicLong fullAt;
+
+    TokenBucket(long perMinute, long burst, long nowNanos) {
+        this.intervalNanos = intervalNanos(perMinute);
+        this.toleranceNanos = refillNanos(perMinute, burst);
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes {@code permits} tokens, all or nothing.
+     *
+     * @return 0 if taken, otherwise nanos until they would be available (a request for more
+     *         than {@code burst} tokens is never admitted)
+     */
+    long tryAcquire(int permits, long nowNanos) {
+        long cost = intervalNanos * permits;
+        while (true) {
+            long current = fullAt.get();
+            long base = current - nowNanos > 0 ? current : nowNanos;
+            long next = base + cost;
+            long ahead = next - nowNanos;
+            if (ahead > toleranceNanos) return ahead - toleranceNanos;
+            if (fullAt.compareAndSet(current, next)) return 0;
+        }
+    }
+
+    /** Gives back tokens taken by {@link #tryAcquire} when an outer limit refused the request. */
+    void release(int permits) {
+        fullAt.addAndGet(-intervalNanos * permits);
+    }
+
+    /** Idle time after which a bucket is full again, i.e. indistinguishable from a new one. */
+    static long refillNanos(long perMinute, long burst) {
+        return intervalNanos(perMinute) * Math.max(1, burst);
+    }
+
+    private static long intervalNanos(long perMinute) {
+        return Math.max(1, 60_000_000_000L / Math.max(1, perMinute));
+    }
+}
@@ -0,0 +1,12 @@
+-- Store the dedup key as the raw 32-byte SHA-256 instead of 64 hex chars.
+-- Halves the width of ux_short_url_url_hash (the hottest unique index on create)
+-- so more of it stays in shared_buffers as the table grows.
+--
+-- ALTER ... TYPE rewrites the table and rebuilds ux_short_url_url_hash in place;
+-- existing hex values convert losslessly, so dedup keeps matching old rows.
+
+ALTER TABLE short_url
+  ALTER COLUMN url_hash TYPE bytea USING decode(url_hash, 'hex');
+
+ALTER TABLE short_url
+  ADD CONSTRAINT ck_short_url_url_hash_len CHECK (octet_length(url_hash) = 32);
@@ -0,0 +1,8 @@
+-- Lease ids in blocks of 1000 instead of one nextval() per row.
+-- Each nextval() now reserves [v, v + 999] for the caller (Hibernate pooled-lo / ShortUrlIdAllocator),
+-- so inserts can be batched and a node only touches the sequence once per 1000 creates.
+-- Must match ShortUrlEntity.ID_BLOCK_SIZE; Hibernate refuses to start on a mismatch.
+--
+-- Existing ids are untouched; the next block starts above the current last_value.
+
+ALTER SEQUENCE short_url_id_seq INCREMENT BY 1000;
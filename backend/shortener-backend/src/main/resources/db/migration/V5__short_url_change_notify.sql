@@ -0,0 +1,34 @@
+-- Cluster-wide cache invalidation. Every node LISTENs on 'short_url_changed' (ShortUrlChangeListener)
+-- and evicts the id in each 'id:seq' payload from its resolve caches.
+--
+-- Changes that alter a redirect (retarget, preview toggle, expiry, delete) also bump
+-- short_url_change_seq and carry the new value, so each node can record how far its L2 file is in
+-- sync and, after a restart or disconnect, tell whether it missed anything.
+-- click_count updates fire nothing.
+--
+-- Inserts don't notify. A transaction that has called pg_notify takes a database-wide lock at
+-- commit, so notifying on insert would serialize every create commit across the cluster, only to
+-- clear negative-cache entries for new ids. Those are dropped locally by the node that created the
+-- row and expire elsewhere after shortener.cache.negative.ttl-seconds (see ResolveNegativeCache).
+
+CREATE SEQUENCE short_url_change_seq;
+
+CREATE FUNCTION short_url_notify_changed() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+  PERFORM pg_notify('short_url_changed', OLD.id || ':' || nextval('short_url_change_seq'));
+  RETURN NULL;
+END $$;
+
+CREATE TRIGGER trg_short_url_updated
+  AFTER UPDATE OF original_url, preview_enabled, expires_at ON short_url
+  FOR EACH ROW
+  WHEN (OLD.original_url IS DISTINCT FROM NEW.original_url
+     OR OLD.preview_enabled IS DISTINCT FROM NEW.preview_enabled
+     OR OLD.expires_at IS DISTINCT FROM NEW.expires_at)
+  EXECUTE FUNCTION short_url_notify_changed();
+
+CREATE TRIGGER trg_short_url_deleted
+  AFTER DELETE ON short_url
+  FOR EACH ROW
+  EXECUTE FUNCTION short_url_notify_changed();
@@ -0,0 +1,11 @@
+-- How far each node's click journal (ClickJournal) has been applied to short_url.click_count.
+-- Written in the same transaction as every click-count UPDATE chunk, so a node replaying its
+-- journal after a crash skips exactly what was already committed: epochs below `epoch`
+-- entirely, and ids up to `applied_through_id` of `epoch` itself (chunks go in ascending id order).
+
+CREATE TABLE click_journal_checkpoint (
+  node_id            TEXT PRIMARY KEY,
+  epoch              BIGINT NOT NULL,
+  applied_through_id BIGINT NOT NULL,
+  updated_at         TIMESTAMPTZ NOT NULL DEFAULT now()
+);
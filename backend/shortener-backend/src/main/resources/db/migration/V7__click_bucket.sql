@@ -0,0 +1,75 @@
+-- Per-link click rollups: one row per (link, bucket width, bucket start). Written by the click
+-- flusher in the same transaction as short_url.click_count, read by GET /api/v1/shorten/{code}/clicks.
+--
+-- Range-partitioned by month on bucket_start (UTC) so retention is a DROP TABLE, not a DELETE.
+-- ClickBucketPartitions calls the functions below to keep partitions ahead of the clock and
+-- drop expired ones; the default partition only catches rows outside every monthly one.
+
+CREATE TABLE click_bucket (
+  short_url_id BIGINT      NOT NULL,
+  granularity  SMALLINT    NOT NULL,  -- bucket width in minutes: 1 or 60
+  bucket_start TIMESTAMPTZ NOT NULL,
+  clicks       BIGINT      NOT NULL,
+  PRIMARY KEY (short_url_id, granularity, bucket_start)
+) PARTITION BY RANGE (bucket_start);
+
+CREATE TABLE click_bucket_default PARTITION OF click_bucket DEFAULT;
+
+-- Creates this month's partition and months_ahead more; returns the number of rows moved.
+-- A month is created as a plain table, its rows are moved over from the default partition and
+-- only then attached: CREATE TABLE ... PARTITION OF would fail for good once the default partition
+-- held rows for that month (maintenance down across a month boundary, months-ahead lowered). The
+-- default partition is locked against inserts only while a missing month is being created, so
+-- rows arriving meanwhile wait rather than land there and break the ATTACH.
+CREATE FUNCTION click_bucket_ensure_partitions(months_ahead int) RETURNS bigint
+LANGUAGE plpgsql AS $$
+DECLARE
+  base  timestamp := date_trunc('month', now() AT TIME ZONE 'UTC');
+  lo    timestamp;
+  part  text;
+  n     bigint;
+  moved bigint := 0;
+BEGIN
+  FOR i IN 0..months_ahead LOOP
+    lo := base + make_interval(months => i);
+    part := 'click_bucket_' || to_char(lo, 'YYYYMM');
+    CONTINUE WHEN to_regclass(part) IS NOT NULL;
+
+    LOCK TABLE click_bucket_default IN SHARE ROW EXCLUSIVE MODE;
+    CONTINUE WHEN to_regclass(part) IS NOT NULL; -- another node created it while we waited
+
+    EXECUTE format('CREATE TABLE %I (LIKE click_bucket INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', part);
+    EXECUTE format('WITH m AS (DELETE FROM click_bucket_default WHERE bucket_start >= %L AND bucket_start < %L RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM m',
+                   lo AT TIME ZONE 'UTC', (lo + interval '1 month') AT TIME ZONE 'UTC', part);
+    GET DIAGNOSTICS n = ROW_COUNT;
+    moved := moved + n;
+    EXECUTE format('ALTER TABLE click_bucket ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   part, lo AT TIME ZONE 'UTC', (lo + interval '1 month') AT TIME ZONE 'UTC');
+  END LOOP;
+  RETURN moved;
+END $$;
+
+-- Drops monthly partitions that end on or before the cutoff; returns how many.
+CREATE FUNCTION click_bucket_drop_partitions_before(cutoff timestamptz) RETURNS int
+LANGUAGE plpgsql AS $$
+DECLARE
+  part    text;
+  dropped int := 0;
+BEGIN
+  FOR part IN
+    SELECT c.relname
+    FROM pg_inherits i
+    JOIN pg_class c ON c.oid = i.inhrelid
+    JOIN pg_class p ON p.oid = i.inhparent
+    WHERE p.relname = 'click_bucket' AND c.relname ~ '^click_bucket_[0-9]{6}$'
+  LOOP
+    IF (to_date(right(part, 6), 'YYYYMM')::timestamp + interval '1 month') AT TIME ZONE 'UTC' <= cutoff THEN
+      EXECUTE format('DROP TABLE %I', part);
+      dropped := dropped + 1;
+    END IF;
+  END LOOP;
+  RETURN dropped;
+END $$;
+
+SELECT click_bucket_ensure_partitions(2);
@@ -0,0 +1,9 @@
+-- Unique-visitor sketch per link (HyperLogLog registers, see core.HyperLogLog for the format).
+-- Kept out of short_url so merges don't rewrite the redirect row; flushes merge into it under
+-- FOR UPDATE, and since a merge is idempotent a retried flush can't overcount.
+
+CREATE TABLE short_url_visitors (
+  short_url_id BIGINT      PRIMARY KEY REFERENCES short_url (id) ON DELETE CASCADE,
+  hll          BYTEA       NOT NULL,
+  updated_at   TIMESTAMPTZ NOT NULL DEFAULT now()
+);
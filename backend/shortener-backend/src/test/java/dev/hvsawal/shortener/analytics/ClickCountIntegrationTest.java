@@ -1,5 +1,6 @@
 package dev.hvsawal.shortener.analytics;
 
+import dev.hvsawal.shortener.dto.ClickSeriesResponse;
 import dev.hvsawal.shortener.dto.ShortenRequest;
 import dev.hvsawal.shortener.dto.ShortenUrlResponse;
 import org.junit.jupiter.api.Test;
@@ -8,6 +9,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -17,9 +19,15 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -55,6 +63,22 @@ public class ClickCountIntegrationTest {
 
         r.add("shortener.clickcount.enabled", () -> true);
         r.add("shortener.clickcount.flush-interval-ms", () -> 60_000); // disable auto flush for test determinism
+        r.add("shortener.clickcount.flush-chunk-size", () -> 2); // several chunks with only a handful of links
+        r.add("shortener.clickcount.ring.enabled", () -> false); // record on the request thread: a flush right after sees every click
+        r.add("shortener.clickcount.max-buffer-entries", () -> 1_000); // 24 ids per stripe
+        r.add("shortener.clickcount.journal.enabled", () -> true);
+        r.add("shortener.clickcount.journal.dir", () -> JOURNAL_DIR.toString());
+        r.add("shortener.clickcount.journal.segment-bytes", () -> 1 << 16);
+    }
+
+    static final Path JOURNAL_DIR;
+
+    static {
+        try {
+            JOURNAL_DIR = Files.createTempDirectory("click-journal-it");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Autowired
@@ -63,6 +87,9 @@ public class ClickCountIntegrationTest {
     @Autowired
     InMemoryBatchedClickTracker tracker;
 
+    @Autowired
+    JdbcTemplate jdbc;
+
     @BeforeEach
     void disableRedirects() {
         rest.getRestTemplate().setRequestFactory(new NoRedirectRequestFactory());
@@ -83,11 +110,91 @@ public class ClickCountIntegrationTest {
             rest.exchange("/" + code, HttpMethod.GET, HttpEntity.EMPTY, String.class);
         }
 
-        // force flush now (calls repo increment)
+        // force flush now (one UPDATE ... FROM unnest per chunk)
         tracker.scheduledFlush();
 
         // metadata should show 5
         ShortenUrlResponse meta = rest.getForObject("/api/v1/shorten/" + code, ShortenUrlResponse.class);
         assertThat(meta.clickCount()).isEqualTo(5L);
     }
+
+    @Test
+    void flush_spanning_several_chunks_applies_every_delta() {
+        String[] codes = new String[5];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = rest.postForEntity("/api/v1/shorten",
+                    new ShortenRequest("https://example.com/chunk/" + i, false),
+                    ShortenUrlResponse.class).getBody().code();
+            for (int k = 0; k <= i; k++) {
+                rest.exchange("/" + codes[i], HttpMethod.GET, HttpEntity.EMPTY, String.class);
+            }
+        }
+
+        tracker.scheduledFlush();
+
+        for (int i = 0; i < codes.length; i++) {
+            ShortenUrlResponse meta = rest.getForObject("/api/v1/shorten/" + codes[i], ShortenUrlResponse.class);
+            assertThat(meta.clickCount()).isEqualTo(i + 1L);
+        }
+    }
+
+    @Test
+    void flushed_clicks_show_up_in_minute_and_hour_buckets() {
+        String code = rest.postForEntity("/api/v1/shorten",
+                new ShortenRequest("https://example.com/buckets", false),
+                ShortenUrlResponse.class).getBody().code();
+        for (int i = 0; i < 3; i++) {
+            rest.exchange("/" + code, HttpMethod.GET, HttpEntity.EMPTY, String.class);
+        }
+
+        tracker.scheduledFlush();
+
+        ClickSeriesResponse minutes = rest.getForObject(
+                "/api/v1/shorten/" + code + "/clicks?granularity=minute", ClickSeriesResponse.class);
+        assertThat(minutes.total()).isEqualTo(3L);
+        assertThat(minutes.points()).hasSize(60);
+
+        ClickSeriesResponse hours = rest.getForObject("/api/v1/shorten/" + code + "/clicks", ClickSeriesResponse.class);
+        assertThat(hours.granularity()).isEqualTo("hour");
+        assertThat(hours.total()).isEqualTo(3L);
+        assertThat(hours.points()).hasSize(24);
+
+        ResponseEntity<String> bad = rest.getForEntity(
+                "/api/v1/shorten/" + code + "/clicks?granularity=week", String.class);
+        assertThat(bad.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+
+        // Valid ISO-8601, but beyond epoch millis
+        ResponseEntity<String> ancient = rest.getForEntity(
+                "/api/v1/shorten/" + code + "/clicks?from={from}", String.class, "-999999999-01-01T00:00:00Z");
+        assertThat(ancient.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(ancient.getBody()).contains("INVALID_REQUEST");
+    }
+
+    @Test
+    void clicks_overflowing_a_full_buffer_stripe_are_recovered_from_the_journal() {
+        // 40 links whose ids all land in one stripe: 24 fit, the rest overflow
+        List<Long> ids = new ArrayList<>();
+        for (long id = 900_000_001L; ids.size() < 40; id++) {
+            if (ClickCounterTable.stripeOf(id) == 0) ids.add(id);
+        }
+        jdbc.update("""
+                insert into short_url (id, original_url, created_at, expires_at, url_hash)
+                select id, 'https://example.com/overflow/' || id, now(), now() + interval '1 year',
+                       sha256(('overflow/' || id)::bytea)
+                from unnest(?::bigint[]) id""", (Object) ids.toArray(Long[]::new));
+
+        long sent = 0;
+        for (int round = 1; round <= 3; round++) {
+            for (long id : ids) {
+                tracker.record(id);
+                sent++;
+            }
+        }
+
+        tracker.scheduledFlush();
+
+        Long total = jdbc.queryForObject("select sum(click_count) from short_url where id = any(?::bigint[])",
+                Long.class, (Object) ids.toArray(Long[]::new));
+        assertThat(total).isEqualTo(sent);
+    }
 }
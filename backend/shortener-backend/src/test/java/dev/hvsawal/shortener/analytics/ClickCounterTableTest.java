@@ -0,0 +1,106 @@
+package dev.hvsawal.shortener.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickCounterTableTest {
+
+    @Test
+    void drain_returns_sorted_ids_with_their_counts_and_resets() {
+        var table = new ClickCounterTable(1_000);
+        long[] ids = new long[table.slots()];
+        long[] counts = new long[table.slots()];
+
+        for (int i = 0; i < 3; i++) table.increment(42);
+        table.increment(7);
+
+        int n = table.drainTo(ids, counts);
+        assertThat(n).isEqualTo(2);
+        assertThat(ids[0]).isEqualTo(7);
+        assertThat(counts[0]).isEqualTo(1);
+        assertThat(ids[1]).isEqualTo(42);
+        assertThat(counts[1]).isEqualTo(3);
+
+        assertThat(table.drainTo(ids, counts)).isZero();
+        assertThat(table.drainTo(ids, counts)).isZero();
+    }
+
+    @Test
+    void concurrent_increments_survive_concurrent_drains() throws Exception {
+        var table = new ClickCounterTable(10_000);
+        long[] ids = new long[table.slots()];
+        long[] counts = new long[table.slots()];
+        int writers = 8;
+        int perWriter = 200_000;
+
+        long drained = 0;
+        try (var pool = Executors.newFixedThreadPool(writers)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        assertThat(table.increment(1 + (i % 500))).isTrue();
+                    }
+                }));
+            }
+            while (!futures.stream().allMatch(Future::isDone)) {
+                int n = table.drainTo(ids, counts);
+                for (int i = 0; i < n; i++) drained += counts[i];
+            }
+            for (var f : futures) f.get();
+        }
+        int n = table.drainTo(ids, counts);
+        for (int i = 0; i < n; i++) drained += counts[i];
+
+        assertThat(drained).isEqualTo((long) writers * perWriter);
+    }
+
+    @Test
+    void memory_is_fixed_and_a_full_table_refuses_new_ids_until_drained() {
+        var table = new ClickCounterTable(1_000);
+        long[] ids = new long[table.slots()];
+        long[] counts = new long[table.slots()];
+
+        int accepted = 0;
+        for (long id = 1; id <= table.slots(); id++) {
+            if (table.increment(id)) accepted++;
+        }
+        assertThat(accepted).isGreaterThanOrEqualTo(1_000).isLessThan(table.slots());
+        assertThat(table.increment(1)).isTrue(); // existing ids keep counting
+
+        assertThat(table.drainTo(ids, counts)).isEqualTo(accepted);
+        assertThat(table.increment(table.slots() + 1L)).isTrue();
+    }
+
+    @Test
+    void a_full_stripe_offers_the_click_to_the_sink_under_the_active_epoch() {
+        var table = new ClickCounterTable(1_000, 7);
+        var offered = new ArrayList<Long>();
+        var sink = new ClickCounterTable.EpochSink() {
+            @Override
+            public void counted(long epoch, long id) {
+            }
+
+            @Override
+            public boolean overflow(long epoch, long id) {
+                assertThat(epoch).isEqualTo(7);
+                return offered.add(id);
+            }
+        };
+
+        int counted = 0;
+        for (long id = 1; offered.isEmpty(); id++) {
+            if (ClickCounterTable.stripeOf(id) != 3) continue;
+            assertThat(table.increment(id, sink)).isTrue();
+            if (offered.isEmpty()) counted++;
+        }
+        assertThat(counted).isEqualTo(table.slots() / ClickCounterTable.STRIPES / 4 * 3);
+        assertThat(table.increment(offered.getFirst())).isFalse(); // without a sink it is lost
+    }
+}
@@ -0,0 +1,88 @@
+package dev.hvsawal.shortener.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickEventRingTest {
+
+    @Test
+    void every_published_event_is_handled_once_across_consumers() throws Exception {
+        var seen = new ConcurrentHashMap<Long, Long>();
+        var ring = new ClickEventRing(1 << 16, 3, (id, ip, ua, w) -> seen.merge(id, (long) w, Long::sum), "test-ring");
+
+        try (var exec = Executors.newFixedThreadPool(8)) {
+            for (int p = 0; p < 8; p++) {
+                long base = p * 1_000_000L;
+                exec.submit(() -> {
+                    for (long i = 1; i <= 5_000; i++) assertThat(ring.tryPublish(base + i, "ip", "ua", 1)).isTrue();
+                });
+            }
+        }
+        ring.close();
+
+        assertThat(seen).hasSize(40_000);
+        assertThat(seen.values()).containsOnly(1L);
+        assertThat(ring.occupancy()).isZero();
+    }
+
+    @Test
+    void full_ring_refuses_until_consumers_catch_up() throws Exception {
+        var release = new CountDownLatch(1);
+        var handled = new AtomicLong();
+        var ring = new ClickEventRing(8, 1, (id, ip, ua, w) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.incrementAndGet();
+        }, "test-ring");
+
+        int accepted = 0;
+        for (int i = 1; i <= 20; i++) if (ring.tryPublish(i, null, null, 1)) accepted++;
+        assertThat(accepted).isEqualTo(8);
+        assertThat(ring.occupancy()).isEqualTo(8);
+
+        release.countDown();
+        ring.close();
+        assertThat(handled.get()).isEqualTo(8);
+        assertThat(ring.isClosed()).isTrue();
+        assertThat(ring.tryPublish(21, null, null, 1)).isFalse();
+    }
+
+    @Test
+    void events_racing_close_are_either_handled_or_refused() throws Exception {
+        var handled = new AtomicLong();
+        var refused = new AtomicLong();
+        var ring = new ClickEventRing(1 << 10, 2, (id, ip, ua, w) -> handled.incrementAndGet(), "test-ring");
+
+        var started = new CountDownLatch(4);
+        try (var exec = Executors.newFixedThreadPool(4)) {
+            for (int p = 0; p < 4; p++) {
+                exec.submit(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 50_000; i++) {
+                        while (!ring.tryPublish(i, null, null, 1)) {
+                            if (ring.isClosed()) {
+                                refused.incrementAndGet();
+                                break;
+                            }
+                            Thread.onSpinWait();
+                        }
+                    }
+                });
+            }
+            started.await();
+            ring.close();
+        }
+
+        assertThat(handled.get() + refused.get()).isEqualTo(200_000);
+        assertThat(ring.occupancy()).isZero();
+    }
+}
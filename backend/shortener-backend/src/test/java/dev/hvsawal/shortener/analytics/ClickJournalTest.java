@@ -0,0 +1,120 @@
+package dev.hvsawal.shortener.analytics;
+
+import dev.hvsawal.shortener.analytics.ClickCheckpointStore.Checkpoint;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClickJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void epochs_read_back_aggregated_and_survive_reopen() throws Exception {
+        String nodeId;
+        try (var journal = new ClickJournal(dir, 4096, 60_000)) {
+            nodeId = journal.nodeId();
+            for (int i = 0; i < 1_000; i++) assertThat(journal.append(10, 1 + (i % 3))).isTrue(); // 2 segments of 511
+            journal.maintain(); // spares are refilled in the background, not by appends
+            assertThat(journal.append(11, 99)).isTrue();
+            journal.seal(10);
+        }
+
+        try (var journal = new ClickJournal(dir, 4096, 5)) {
+            assertThat(journal.nodeId()).isEqualTo(nodeId);
+            assertThat(journal.epochsOnDisk()).isEqualTo(List.of(10L, 11L));
+
+            var c = journal.read(10);
+            assertThat(c.n()).isEqualTo(3);
+            assertThat(new long[]{c.ids()[0], c.ids()[1], c.ids()[2]}).containsExactly(1, 2, 3);
+            assertThat(new long[]{c.counts()[0], c.counts()[1], c.counts()[2]}).containsExactly(334, 333, 333);
+
+            journal.delete(10);
+            assertThat(journal.epochsOnDisk()).isEqualTo(List.of(11L));
+        }
+    }
+
+    @Test
+    void committed_segments_are_zeroed_and_reused_not_created_per_epoch() throws Exception {
+        try (var journal = new ClickJournal(dir, 4096, 60_000)) { // maintenance only when called
+            for (long epoch = 1; epoch <= 50; epoch++) {
+                for (int i = 0; i < 600; i++) assertThat(journal.append(epoch, epoch * 1_000 + i % 7)).isTrue();
+                journal.seal(epoch);
+                assertThat(journal.read(epoch).counts()).startsWith(86, 86, 86, 86, 86, 85, 85);
+                journal.delete(epoch);
+                journal.maintain();
+            }
+            assertThat(segmentFiles()).isLessThanOrEqualTo(ClickJournal.MAX_SPARES);
+        }
+
+        // A reused segment carries nothing over from its previous epochs
+        try (var journal = new ClickJournal(dir, 4096, 60_000)) {
+            assertThat(journal.epochsOnDisk()).isEmpty();
+            journal.append(51, 7);
+            journal.seal(51);
+            assertThat(journal.read(51).n()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void append_fails_instead_of_creating_files_when_no_spare_is_ready() throws Exception {
+        try (var journal = new ClickJournal(dir, 4096, 60_000)) {
+            int accepted = 0;
+            while (journal.append(1, 5)) accepted++;
+            assertThat(accepted).isEqualTo(ClickJournal.SPARES * 511);
+            assertThat(segmentFiles()).isEqualTo(ClickJournal.SPARES);
+
+            journal.maintain(); // the background thread's job
+            assertThat(journal.append(1, 5)).isTrue();
+            journal.seal(1);
+            assertThat(journal.read(1).counts()[0]).isEqualTo(accepted + 1L);
+        }
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("segment-")).count();
+        }
+    }
+
+    @Test
+    void counter_table_hands_each_click_to_the_epoch_it_was_counted_in() throws Exception {
+        try (var journal = new ClickJournal(dir, 4096, 5)) {
+            var table = new ClickCounterTable(1_000, 100);
+            long[] ids = new long[table.slots()];
+            long[] counts = new long[table.slots()];
+
+            table.increment(5, journal::append);
+            table.increment(5, journal::append);
+            long first = table.activeEpoch();
+            assertThat(table.drainTo(ids, counts)).isEqualTo(1);
+            journal.seal(first);
+            table.increment(6, journal::append);
+
+            assertThat(first).isEqualTo(100);
+            assertThat(table.activeEpoch()).isEqualTo(101);
+            var c = journal.read(100);
+            assertThat(c.n()).isEqualTo(1);
+            assertThat(c.counts()[0]).isEqualTo(counts[0]).isEqualTo(2);
+            assertThat(journal.read(101).ids()[0]).isEqualTo(6);
+        }
+    }
+
+    @Test
+    void checkpoint_skips_what_was_committed() {
+        long[] ids = {3, 7, 9, 12};
+        var cp = new Checkpoint(20, 7);
+
+        assertThat(cp.firstUnapplied(19, ids, 4)).isEqualTo(Checkpoint.BEHIND);
+        assertThat(cp.firstUnapplied(20, ids, 4)).isEqualTo(2);
+        assertThat(cp.firstUnapplied(21, ids, 4)).isZero();
+    }
+}
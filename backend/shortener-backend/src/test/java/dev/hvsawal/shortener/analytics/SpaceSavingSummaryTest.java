@@ -0,0 +1,51 @@
+package dev.hvsawal.shortener.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpaceSavingSummaryTest {
+
+    @Test
+    void exact_while_under_capacity() {
+        var s = new SpaceSavingSummary(10);
+        s.addAll(new long[]{1, 2, 3}, new long[]{5, 1, 2}, 3);
+        s.addAll(new long[]{1, 3}, new long[]{1, 1}, 2);
+
+        assertThat(s.floor()).isZero();
+        assertThat(s.counters().get(1L)).containsExactly(6, 0);
+        assertThat(s.counters().get(3L)).containsExactly(3, 0);
+    }
+
+    @Test
+    void bounds_hold_and_heavy_hitters_survive_over_capacity() {
+        var s = new SpaceSavingSummary(20);
+        Map<Long, Long> truth = new HashMap<>();
+        Random rnd = new Random(7);
+        for (int batch = 0; batch < 50; batch++) {
+            long[] ids = new long[100];
+            long[] deltas = new long[100];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = i < 5 ? i + 1 : 1_000 + batch * 1_000L + i; // 5 hot ids, the rest one-offs
+                deltas[i] = i < 5 ? 20 + rnd.nextInt(5) : 1 + rnd.nextInt(3);
+                truth.merge(ids[i], deltas[i], Long::sum);
+            }
+            s.addAll(ids, deltas, ids.length);
+        }
+
+        assertThat(s.counters()).hasSizeLessThanOrEqualTo(20);
+        for (long hot = 1; hot <= 5; hot++) assertThat(s.counters()).containsKey(hot);
+        for (var e : s.counters().entrySet()) {
+            long actual = truth.get(e.getKey());
+            assertThat(e.getValue()[0]).isGreaterThanOrEqualTo(actual);
+            assertThat(e.getValue()[0] - e.getValue()[1]).isLessThanOrEqualTo(actual);
+        }
+        for (var e : truth.entrySet()) {
+            if (!s.counters().containsKey(e.getKey())) assertThat(e.getValue()).isLessThanOrEqualTo(s.floor());
+        }
+    }
+}
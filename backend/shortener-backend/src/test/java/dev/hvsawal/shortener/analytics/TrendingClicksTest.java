@@ -0,0 +1,42 @@
+package dev.hvsawal.shortener.analytics;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties.Clickcount;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrendingClicksTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private static TrendingClicks trending(int maxWindowMinutes) {
+        var cc = new Clickcount(true, 1000, 100, 0.5, 10, 1, null, null, null,
+                new Clickcount.Trending(true, 10, maxWindowMinutes), null, null);
+        return new TrendingClicks(new ShortenerConfigurationProperties(
+                null, null, 0, null, null, null, cc, null, null));
+    }
+
+    @Test
+    void window_sums_recent_minutes_and_forgets_older_ones() {
+        var t = trending(5);
+        long t0 = 100 * MINUTE;
+        t.offer(new long[]{1, 2}, new long[]{10, 1}, 2, t0);
+        t.offer(new long[]{2}, new long[]{4}, 1, t0 + MINUTE);
+        t.offer(new long[]{2, 3}, new long[]{4, 2}, 2, t0 + 2 * MINUTE + 30_000);
+
+        var last3 = t.top(3, 10, t0 + 2 * MINUTE + 59_000);
+        assertThat(last3).extracting(TrendingClicks.Hit::id).containsExactly(1L, 2L, 3L);
+        assertThat(last3.get(0).clicks()).isEqualTo(10);
+        assertThat(last3.get(1).clicks()).isEqualTo(9);
+
+        var last1 = t.top(1, 10, t0 + 2 * MINUTE + 59_000);
+        assertThat(last1).extracting(TrendingClicks.Hit::id).containsExactly(2L, 3L);
+
+        // five minutes on, minute t0 has left the window and its slot has been reused
+        t.offer(new long[]{3}, new long[]{1}, 1, t0 + 5 * MINUTE);
+        var later = t.top(5, 1, t0 + 5 * MINUTE);
+        assertThat(later).extracting(TrendingClicks.Hit::id).containsExactly(2L);
+        assertThat(later.get(0).clicks()).isEqualTo(8);
+    }
+}
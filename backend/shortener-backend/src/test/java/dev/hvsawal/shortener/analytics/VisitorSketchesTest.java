@@ -0,0 +1,46 @@
+package dev.hvsawal.shortener.analytics;
+
+import dev.hvsawal.shortener.core.HyperLogLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VisitorSketchesTest {
+
+    @Test
+    void concurrent_adds_across_the_sparse_to_dense_switch_match_a_sequential_sketch() throws Exception {
+        var sketch = new VisitorSketches.Sketch();
+        var expected = new HyperLogLog();
+        long[] hashes = IntStream.range(0, 5_000)
+                .mapToLong(i -> VisitorSketches.fingerprint("10.0.0." + (i % 250), "agent-" + (i / 250)))
+                .toArray();
+        for (long h : hashes) expected.add(h);
+
+        try (var exec = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                int offset = t;
+                exec.submit(() -> {
+                    for (int i = offset; i < hashes.length; i += 8) {
+                        sketch.set(HyperLogLog.index(hashes[i]), HyperLogLog.rank(hashes[i]));
+                    }
+                });
+            }
+        }
+
+        HyperLogLog actual = sketch.toHyperLogLog();
+        for (int i = 0; i < HyperLogLog.M; i++) assertThat(actual.get(i)).isEqualTo(expected.get(i));
+        assertThat((double) actual.estimate()).isBetween(4_000.0, 6_000.0);
+    }
+
+    @Test
+    void fingerprint_depends_on_both_ip_and_user_agent() {
+        long a = VisitorSketches.fingerprint("203.0.113.7", "Mozilla/5.0");
+        assertThat(VisitorSketches.fingerprint("203.0.113.7", "Mozilla/5.0")).isEqualTo(a);
+        assertThat(VisitorSketches.fingerprint("203.0.113.8", "Mozilla/5.0")).isNotEqualTo(a);
+        assertThat(VisitorSketches.fingerprint("203.0.113.7", "curl/8.0")).isNotEqualTo(a);
+        assertThat(VisitorSketches.fingerprint(null, null)).isNotZero();
+    }
+}
@@ -1,5 +1,7 @@
 package dev.hvsawal.shortener.api;
 
+import dev.hvsawal.shortener.dto.ShortenBatchRequest;
+import dev.hvsawal.shortener.dto.ShortenBatchResponse;
 import dev.hvsawal.shortener.dto.ShortenRequest;
 import dev.hvsawal.shortener.dto.ShortenUrlResponse;
 import org.junit.jupiter.api.Test;
@@ -10,6 +12,7 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -22,6 +25,12 @@ import org.springframework.http.client.SimpleClientHttpRequestFactory;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -54,6 +63,7 @@ class ShortenerIntegrationTest {
         r.add("shortener.scramble.rounds", () -> 5);
         r.add("shortener.scramble.min-len", () -> 6);
         r.add("shortener.expiration-years", () -> 2);
+        r.add("shortener.batch.chunk-size", () -> 2); // batches below span several chunks
 
         // Keep tests deterministic: disable clickcount flush for now
         r.add("shortener.clickcount.enabled", () -> false);
@@ -72,7 +82,7 @@ class ShortenerIntegrationTest {
         // create
         var req = new ShortenRequest("https://example.com/a?b=1", false);
         ResponseEntity<ShortenUrlResponse> created = rest.postForEntity("/api/v1/shorten", req, ShortenUrlResponse.class);
-        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
         assertThat(created.getBody()).isNotNull();
         String code = created.getBody().code();
         assertThat(code).isNotBlank();
@@ -93,6 +103,24 @@ class ShortenerIntegrationTest {
         assertThat(redir.getHeaders().getLocation().toString()).isEqualTo("https://example.com/a?b=1");
     }
 
+    @Test
+    void concurrent_creates_of_same_url_share_one_code() throws Exception {
+        var req = new ShortenRequest("https://example.com/same-url-race", false);
+        try (var pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<ResponseEntity<ShortenUrlResponse>>> calls = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                calls.add(pool.submit(() -> rest.postForEntity("/api/v1/shorten", req, ShortenUrlResponse.class)));
+            }
+            Set<String> codes = new HashSet<>();
+            for (var call : calls) {
+                ResponseEntity<ShortenUrlResponse> res = call.get();
+                assertThat(res.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+                codes.add(res.getBody().code());
+            }
+            assertThat(codes).hasSize(1);
+        }
+    }
+
     @Test
     void invalid_url_returns_400_problem_detail() {
         var req = new ShortenRequest("javascript:alert(1)", false);
@@ -100,4 +128,110 @@ class ShortenerIntegrationTest {
         assertThat(res.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
         assertThat(res.getBody()).contains("INVALID_URL");
     }
+
+    @Test
+    void batch_create_keeps_order_dedups_and_reports_per_item_errors() {
+        ShortenUrlResponse existing = rest.postForEntity("/api/v1/shorten",
+                new ShortenRequest("https://example.com/batch/existing", false), ShortenUrlResponse.class).getBody();
+        assertThat(existing).isNotNull();
+
+        List<ShortenRequest> items = List.of(
+                new ShortenRequest("https://example.com/batch/1", false),
+                new ShortenRequest("javascript:alert(1)", false),
+                new ShortenRequest("https://example.com/batch/2", false),
+                new ShortenRequest("https://example.com/batch/1", false), // repeat inside the batch
+                new ShortenRequest("https://example.com/batch/existing", false),
+                new ShortenRequest("https://example.com/batch/1", true), // preview: a different link
+                new ShortenRequest("https://example.com/batch/3", false));
+        ResponseEntity<ShortenBatchResponse> res = rest.postForEntity("/api/v1/shorten/batch",
+                new ShortenBatchRequest(items), ShortenBatchResponse.class);
+        assertThat(res.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(res.getBody()).isNotNull();
+        List<ShortenBatchResponse.Item> out = res.getBody().items();
+        assertThat(out).hasSize(items.size());
+
+        assertThat(out.get(1).result()).isNull();
+        assertThat(out.get(1).errorCode()).isEqualTo("INVALID_URL");
+        for (int i : new int[]{0, 2, 3, 4, 5, 6}) {
+            assertThat(out.get(i).errorCode()).isNull();
+            assertThat(out.get(i).result().originalUrl()).isEqualTo(items.get(i).url());
+        }
+        assertThat(out.get(3).result().code()).isEqualTo(out.get(0).result().code());
+        assertThat(out.get(4).result().code()).isEqualTo(existing.code());
+        assertThat(out.get(5).result().previewEnabled()).isTrue();
+        Set<String> distinct = new HashSet<>();
+        for (int i : new int[]{0, 2, 4, 5, 6}) distinct.add(out.get(i).result().code());
+        assertThat(distinct).hasSize(5);
+
+        // Every chunk was written: each code resolves, and a single create agrees with the batch
+        for (String code : distinct) {
+            assertThat(rest.getForEntity("/api/v1/shorten/" + code, ShortenUrlResponse.class).getStatusCode())
+                    .isEqualTo(HttpStatus.OK);
+        }
+        ShortenUrlResponse again = rest.postForEntity("/api/v1/shorten",
+                new ShortenRequest("https://example.com/batch/3", false), ShortenUrlResponse.class).getBody();
+        assertThat(again.code()).isEqualTo(out.get(6).result().code());
+    }
+
+    @Test
+    void blank_missing_or_too_long_urls_fail_their_item_not_the_batch() {
+        List<ShortenRequest> items = List.of(
+                new ShortenRequest("https://example.com/batch/ok", false),
+                new ShortenRequest("   ", false),
+                new ShortenRequest(null, null),
+                new ShortenRequest("https://example.com/" + "x".repeat(5_000), false));
+        ResponseEntity<ShortenBatchResponse> res = rest.postForEntity("/api/v1/shorten/batch",
+                new ShortenBatchRequest(items), ShortenBatchResponse.class);
+
+        assertThat(res.getStatusCode()).isEqualTo(HttpStatus.OK);
+        List<ShortenBatchResponse.Item> out = res.getBody().items();
+        assertThat(out).hasSize(4);
+        assertThat(out.get(0).result().originalUrl()).isEqualTo("https://example.com/batch/ok");
+        for (int i = 1; i < 4; i++) {
+            assertThat(out.get(i).result()).isNull();
+            assertThat(out.get(i).errorCode()).isEqualTo("INVALID_URL");
+        }
+    }
+
+    @Test
+    void null_batch_item_is_a_bad_request_not_a_server_error() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> res = rest.postForEntity("/api/v1/shorten/batch",
+                new HttpEntity<>("{\"items\":[{\"url\":\"https://example.com/batch/n\"},null]}", headers), String.class);
+
+        assertThat(res.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(res.getBody()).contains("items[1]");
+    }
+
+    @Test
+    void batch_larger_than_the_rate_limit_burst_is_rejected_up_front() {
+        List<ShortenRequest> items = new ArrayList<>();
+        for (int i = 0; i <= 120; i++) items.add(new ShortenRequest("https://example.com/too-many/" + i, false));
+        ResponseEntity<String> res = rest.postForEntity("/api/v1/shorten/batch", new ShortenBatchRequest(items), String.class);
+        assertThat(res.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(res.getHeaders().containsKey("Retry-After")).isFalse();
+        assertThat(res.getBody()).contains("INVALID_REQUEST").contains("120");
+    }
+
+    @Test
+    void clients_behind_a_trusted_proxy_get_their_own_rate_limit() {
+        List<ShortenRequest> items = new ArrayList<>();
+        for (int i = 0; i < 120; i++) items.add(new ShortenRequest("https://example.com/forwarded/" + i, false));
+        // The test client connects from loopback, which is a trusted proxy by default
+        assertThat(rest.postForEntity("/api/v1/shorten/batch", forwardedFor("203.0.113.7", new ShortenBatchRequest(items)),
+                String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        var one = new ShortenRequest("https://example.com/forwarded/one", false);
+        assertThat(rest.postForEntity("/api/v1/shorten", forwardedFor("203.0.113.7", one), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(rest.postForEntity("/api/v1/shorten", forwardedFor("203.0.113.8", one), String.class).getStatusCode())
+                .isEqualTo(HttpStatus.CREATED);
+    }
+
+    private static <T> HttpEntity<T> forwardedFor(String client, T body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Forwarded-For", client);
+        return new HttpEntity<>(body, headers);
+    }
 }
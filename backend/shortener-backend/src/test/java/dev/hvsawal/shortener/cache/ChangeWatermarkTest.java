@@ -0,0 +1,34 @@
+package dev.hvsawal.shortener.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangeWatermarkTest {
+
+    @Test
+    void only_moves_across_contiguous_values() {
+        var w = new ChangeWatermark(1_000);
+        w.reset(10);
+
+        assertThat(w.applied(12, 0)).isEqualTo(10); // 11 committed later
+        assertThat(w.applied(13, 0)).isEqualTo(10);
+        assertThat(w.applied(11, 0)).isEqualTo(13);
+        assertThat(w.applied(9, 0)).isEqualTo(13); // already covered by a resync
+    }
+
+    @Test
+    void skips_a_value_missing_past_the_gap_timeout() {
+        var w = new ChangeWatermark(1_000);
+        w.reset(10);
+
+        assertThat(w.applied(12, 0)).isEqualTo(10); // 11 rolled back
+        assertThat(w.advance(999)).isEqualTo(10);
+        assertThat(w.advance(1_000)).isEqualTo(12);
+
+        // The next gap gets its own full timeout
+        assertThat(w.applied(14, 1_500)).isEqualTo(12);
+        assertThat(w.advance(2_000)).isEqualTo(12);
+        assertThat(w.advance(2_500)).isEqualTo(14);
+    }
+}
@@ -0,0 +1,83 @@
+package dev.hvsawal.shortener.cache;
+
+import dev.hvsawal.shortener.service.ShortUrlService.Resolved;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedResolveStoreTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long LATER = NOW + 86_400_000L;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void put_get_remove() throws Exception {
+        try (var store = new MappedResolveStore(dir.resolve("l2.bin"), 1024, 128)) {
+            var r = new Resolved(42, "https://example.com/a?b=1", true, LATER);
+            assertThat(store.put(r)).isTrue();
+            assertThat(store.get(42, NOW)).isEqualTo(r);
+            assertThat(store.get(43, NOW)).isNull();
+
+            store.remove(42);
+            assertThat(store.get(42, NOW)).isNull();
+        }
+    }
+
+    @Test
+    void survives_reopen_but_not_a_geometry_change() throws Exception {
+        Path file = dir.resolve("l2.bin");
+        var r = new Resolved(7, "https://example.com/", false, LATER);
+        try (var store = new MappedResolveStore(file, 1024, 128)) {
+            store.put(r);
+        }
+        try (var store = new MappedResolveStore(file, 1024, 128)) {
+            assertThat(store.get(7, NOW)).isEqualTo(r);
+        }
+        try (var store = new MappedResolveStore(file, 2048, 128)) {
+            assertThat(store.get(7, NOW)).isNull();
+        }
+    }
+
+    @Test
+    void expired_entries_are_dropped_on_read() throws Exception {
+        try (var store = new MappedResolveStore(dir.resolve("l2.bin"), 1024, 128)) {
+            store.put(new Resolved(9, "https://example.com/", false, NOW));
+            assertThat(store.get(9, NOW)).isNull();
+            assertThat(store.get(9, NOW - 1)).isNull();
+        }
+    }
+
+    @Test
+    void skips_urls_that_do_not_fit_a_slot() throws Exception {
+        try (var store = new MappedResolveStore(dir.resolve("l2.bin"), 1024, 64)) {
+            assertThat(store.put(new Resolved(1, "https://example.com/" + "x".repeat(40), false, LATER))).isFalse();
+            assertThat(store.put(new Resolved(2, "https://example.com/x", false, LATER))).isTrue();
+        }
+    }
+
+    @Test
+    void full_set_evicts_earliest_expiry_and_keeps_the_rest() throws Exception {
+        // 8 slots = a single set, so every id competes for it
+        try (var store = new MappedResolveStore(dir.resolve("l2.bin"), MappedResolveStore.WAYS, 64)) {
+            for (int id = 1; id <= MappedResolveStore.WAYS; id++) {
+                store.put(new Resolved(id, "https://e.com/" + id, false, LATER + id));
+            }
+            store.put(new Resolved(100, "https://e.com/100", false, LATER + 100));
+
+            assertThat(store.get(1, NOW)).isNull();
+            assertThat(store.get(100, NOW)).isNotNull();
+            for (int id = 2; id <= MappedResolveStore.WAYS; id++) {
+                assertThat(store.get(id, NOW)).as("id %d", id).isNotNull();
+            }
+
+            store.clear();
+            assertThat(store.get(100, NOW)).isNull();
+        }
+    }
+}
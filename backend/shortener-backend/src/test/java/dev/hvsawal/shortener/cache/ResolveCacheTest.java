@@ -0,0 +1,170 @@
+package dev.hvsawal.shortener.cache;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.service.PreparedRedirect;
+import dev.hvsawal.shortener.service.ShortUrlService.Resolved;
+import dev.hvsawal.shortener.support.errors.CodeNotFoundException;
+import dev.hvsawal.shortener.support.errors.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ResolveCacheTest {
+
+    private static final Function<Resolved, PreparedRedirect> RENDER = r -> PreparedRedirect.of(r, "link-test");
+
+    private static ShortenerConfigurationProperties.Cache props(int refreshSeconds, int maxStaleSeconds) {
+        return new ShortenerConfigurationProperties.Cache(refreshSeconds, 100, maxStaleSeconds, null, null, null);
+    }
+
+    private static Resolved link(long expiresInMillis) {
+        return new Resolved(1, "https://example.com/", false, System.currentTimeMillis() + expiresInMillis);
+    }
+
+    @Test
+    void entry_never_outlives_expires_at() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        var cache = new ResolveCache(props(600, 3600), id -> {
+            loads.incrementAndGet();
+            return link(150);
+        }, id -> link(150), RENDER, new SimpleMeterRegistry());
+
+        cache.get(1);
+        cache.get(1);
+        assertThat(loads).hasValue(1);
+
+        Thread.sleep(250);
+        cache.get(1);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void load_failures_propagate_unchanged_and_are_not_cached() {
+        AtomicInteger loads = new AtomicInteger();
+        var cache = new ResolveCache(props(600, 3600), id -> {
+            loads.incrementAndGet();
+            throw new CodeNotFoundException("Code not found");
+        }, id -> link(60_000), RENDER, new SimpleMeterRegistry());
+
+        assertThatThrownBy(() -> cache.get(2)).isInstanceOf(CodeNotFoundException.class);
+        assertThatThrownBy(() -> cache.get(2)).isInstanceOf(CodeNotFoundException.class);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void concurrent_misses_on_one_id_run_a_single_load() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        var cache = new ResolveCache(props(600, 3600), id -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return link(60_000);
+        }, id -> link(60_000), RENDER, registry);
+
+        int callers = 100;
+        try (var pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<PreparedRedirect>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) results.add(pool.submit(() -> cache.get(7)));
+
+            // everyone but the leader ends up parked on the leader's future
+            for (int i = 0; i < 200 && registry.counter("shortener_resolve_coalesced_total").count() < callers - 1; i++) {
+                Thread.sleep(10);
+            }
+            release.countDown();
+            for (var r : results) assertThat(r.get()).isNotNull();
+        }
+
+        assertThat(loads).hasValue(1);
+        assertThat(registry.counter("shortener_resolve_load_total").count()).isEqualTo(1);
+        assertThat(registry.counter("shortener_resolve_coalesced_total").count()).isEqualTo(callers - 1);
+    }
+
+    @Test
+    void invalidate_during_a_load_keeps_its_result_out_of_the_cache() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Resolved old = link(60_000);
+        Resolved current = new Resolved(1, "https://example.com/new", false, old.expiresAtEpochMillis());
+        var cache = new ResolveCache(props(600, 3600), id -> {
+            if (loads.incrementAndGet() > 1) return current;
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return old; // read before the change committed
+        }, id -> current, RENDER, new SimpleMeterRegistry());
+
+        try (var pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<PreparedRedirect> first = pool.submit(() -> cache.get(1));
+            loading.await();
+            cache.invalidate(1); // the change notification arrives mid-load
+            release.countDown();
+            assertThat(first.get().link()).isSameAs(old);
+        }
+
+        assertThat(cache.get(1).link()).isSameAs(current);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void failed_refresh_keeps_serving_the_old_value() throws Exception {
+        var registry = new SimpleMeterRegistry();
+        Resolved original = link(60_000);
+        AtomicInteger reloads = new AtomicInteger();
+        var cache = new ResolveCache(props(1, 3600), id -> original, id -> {
+            reloads.incrementAndGet();
+            throw new ServiceUnavailableException("Service overloaded. Please retry.");
+        }, RENDER, registry);
+
+        assertThat(cache.get(1).link()).isSameAs(original);
+        Thread.sleep(1_100);
+
+        // this read triggers the background reload and still gets the cached value
+        assertThat(cache.get(1).link()).isSameAs(original);
+        for (int i = 0; i < 50 && reloads.get() == 0; i++) Thread.sleep(20);
+        Thread.sleep(50);
+
+        assertThat(reloads.get()).isPositive();
+        assertThat(cache.get(1).link()).isSameAs(original);
+        assertThat(registry.counter("shortener_resolve_refresh_failed_total").count()).isPositive();
+    }
+
+    @Test
+    void refresh_that_finds_the_link_gone_drops_it() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        var cache = new ResolveCache(props(1, 3600), id -> {
+            loads.incrementAndGet();
+            return link(60_000);
+        }, id -> {
+            throw new CodeNotFoundException("Code not found");
+        }, RENDER, new SimpleMeterRegistry());
+
+        cache.get(1);
+        Thread.sleep(1_100);
+        cache.get(1); // stale read, schedules the reload
+        for (int i = 0; i < 50; i++) {
+            Thread.sleep(20);
+            cache.get(1);
+            if (loads.get() > 1) break;
+        }
+        assertThat(loads.get()).isGreaterThan(1);
+    }
+}
@@ -0,0 +1,59 @@
+package dev.hvsawal.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class Base62Test {
+
+    @Test
+    void encode_decode_round_trip_including_unsigned_values() {
+        long[] values = {0L, 1L, 61L, 62L, 3843L, 3844L, Long.MAX_VALUE, Long.MIN_VALUE, -1L};
+        for (long v : values) {
+            String s = Base62.encode(v);
+            assertThat(s.length()).isEqualTo(Base62.encodedLength(v));
+            assertThat(Base62.decode(s)).isEqualTo(v);
+        }
+        assertThat(Base62.encode(0L)).isEqualTo("0");
+        assertThat(Base62.encode(62L)).isEqualTo("10");
+        assertThat(Base62.encode(-1L)).isEqualTo("LygHa16AHYF"); // 2^64 - 1
+    }
+
+    @Test
+    void encodeFixed_left_pads_and_never_truncates() {
+        assertThat(Base62.encodeFixed(61L, 4)).isEqualTo("000z");
+        assertThat(Base62.encodeFixed(3844L, 2)).isEqualTo("100");
+    }
+
+    @Test
+    void decodes_slices_without_copying() {
+        assertThat(Base62.decode("/abc123?x=1", 1, 7)).isEqualTo(Base62.decode("abc123"));
+
+        byte[] raw = "GET /00z HTTP/1.1".getBytes(StandardCharsets.US_ASCII);
+        assertThat(Base62.decode(raw, 5, 3)).isEqualTo(61L);
+    }
+
+    @Test
+    void encodeInto_writes_at_offset() {
+        char[] chars = new char[16];
+        int n = Base62.encodeFixedInto(61L, 3, chars, 2);
+        assertThat(new String(chars, 2, n)).isEqualTo("00z");
+
+        byte[] bytes = new byte[16];
+        n = Base62.encodeInto(3844L, bytes, 1);
+        assertThat(new String(bytes, 1, n, StandardCharsets.US_ASCII)).isEqualTo("100");
+    }
+
+    @Test
+    void rejects_overflow_and_invalid_chars() {
+        assertThatThrownBy(() -> Base62.decode("LygHa16AHYG")) // 2^64
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(Base62.decode("000LygHa16AHYF")).isEqualTo(-1L);
+        assertThatThrownBy(() -> Base62.decode("ab-c")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Base62.decode("é")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Base62.decode(" ")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
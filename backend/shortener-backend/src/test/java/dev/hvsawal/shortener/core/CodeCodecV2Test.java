@@ -21,4 +21,44 @@ class CodeCodecV2Test {
         assertThat(codec.decodeToId(newCode)).isEqualTo(100L);
         assertThat(newCode.length()).isEqualTo(1 + 5); // prefix + minLen
     }
+
+    @Test
+    void v2_codes_are_stable_across_lengths() {
+        // Golden values produced by the original BigInteger implementation; existing links must keep resolving.
+        CodeV2Props v2 = new CodeV2Props(true, "_", 5, 10, 1L, "dev-key");
+        CodeCodec codec = new CodeCodec("dev-key", 6, 1, v2);
+
+        Object[][] golden = {
+                {1L, "_id7d9"},
+                {2L, "_JLGUk"},
+                {61L, "_FLhUx"},
+                {62L, "_q3qMY"},
+                {916_132_831L, "_XCptx"},           // 62^5 - 1
+                {916_132_832L, "_G2CdSu"},          // 62^5
+                {56_800_235_583L, "_SVqX1L"},       // 62^6 - 1
+                {56_800_235_584L, "_2rhYuTn"},      // 62^6
+                {123_456_789_012_345L, "_8U9MhR4S"},
+                {839_299_365_868_340_223L, "_RLPgiMpMyJ"}, // 62^10 - 1
+        };
+        for (Object[] g : golden) {
+            long id = (Long) g[0];
+            assertThat(codec.encodeId(id)).isEqualTo(g[1]);
+            assertThat(codec.decodeToId((String) g[1])).isEqualTo(id);
+        }
+
+        // beyond 62^maxLength falls back to V1
+        assertThat(codec.encodeId(839_299_365_868_340_224L)).doesNotStartWith("_");
+    }
+
+    @Test
+    void v2_round_trips_across_the_full_range() {
+        CodeV2Props v2 = new CodeV2Props(true, "_", 5, 10, 1L, "dev-key");
+        CodeCodec codec = new CodeCodec("dev-key", 6, 1, v2);
+
+        java.util.SplittableRandom rnd = new java.util.SplittableRandom(42);
+        for (int i = 0; i < 10_000; i++) {
+            long id = 1 + rnd.nextLong(839_299_365_868_340_223L);
+            assertThat(codec.decodeToId(codec.encodeId(id))).isEqualTo(id);
+        }
+    }
 }
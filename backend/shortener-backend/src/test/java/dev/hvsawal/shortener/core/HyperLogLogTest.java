@@ -0,0 +1,55 @@
+package dev.hvsawal.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void small_counts_are_near_exact_and_stay_sparse() {
+        var h = new HyperLogLog();
+        var rnd = new SplittableRandom(1);
+        for (int i = 0; i < 20; i++) {
+            long hash = rnd.nextLong();
+            h.add(hash);
+            h.add(hash); // repeats don't count
+        }
+
+        assertThat(h.estimate()).isBetween(19L, 21L);
+        byte[] bytes = h.toBytes();
+        assertThat(bytes.length).isLessThan(1 + 2 * 20 + 1);
+        assertThat(HyperLogLog.fromBytes(bytes).estimate()).isEqualTo(h.estimate());
+    }
+
+    @Test
+    void large_counts_are_within_a_few_standard_errors_in_bounded_space() {
+        var h = new HyperLogLog();
+        var rnd = new SplittableRandom(2);
+        for (int i = 0; i < 1_000_000; i++) h.add(rnd.nextLong());
+
+        assertThat((double) h.estimate()).isCloseTo(1_000_000, within(200_000.0));
+        assertThat(h.toBytes()).hasSize(1 + HyperLogLog.M);
+    }
+
+    @Test
+    void merge_is_a_union_and_idempotent() {
+        var a = new HyperLogLog();
+        var b = new HyperLogLog();
+        var rnd = new SplittableRandom(3);
+        for (int i = 0; i < 5_000; i++) a.add(rnd.nextLong());
+        for (int i = 0; i < 5_000; i++) b.add(rnd.nextLong());
+
+        var union = HyperLogLog.fromBytes(a.toBytes());
+        union.merge(b);
+        long once = union.estimate();
+        union.merge(b);
+
+        assertThat(union.estimate()).isEqualTo(once);
+        assertThat((double) once).isCloseTo(10_000, within(2_000.0));
+        assertThat(HyperLogLog.fromBytes(new byte[0]).isEmpty()).isTrue();
+    }
+}
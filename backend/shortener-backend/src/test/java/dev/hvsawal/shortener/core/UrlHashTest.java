@@ -0,0 +1,35 @@
+package dev.hvsawal.shortener.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UrlHashTest {
+
+    @Test
+    void matches_the_hex_hashes_stored_before_the_bytea_migration() {
+        // V3 converts existing rows with decode(url_hash, 'hex'), so new hashes must equal those bytes
+        assertThat(HexFormat.of().formatHex(UrlHash.sha256("https://example.com/a?b=1", false)))
+                .isEqualTo("2a062afc1a92212194dc36e69bebb9fd19bff13213a7f59cf20166d8ffe1dd69");
+        assertThat(HexFormat.of().formatHex(UrlHash.sha256("https://example.com/a?b=1", true)))
+                .isEqualTo("291764fb20519a981ef919778b29a33f41b07a5112f02adf9921d758805570e2");
+        assertThat(UrlHash.sha256("https://example.com/", false)).hasSize(UrlHash.LENGTH);
+    }
+
+    @Test
+    void pooled_digests_are_safe_across_virtual_threads() throws Exception {
+        byte[] expected = UrlHash.sha256("https://example.com/a?b=1", false);
+        try (var exec = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = IntStream.range(0, 2_000)
+                    .mapToObj(i -> exec.submit(() -> UrlHash.sha256("https://example.com/a?b=1", false)))
+                    .toList();
+            for (var f : futures) {
+                assertThat(f.get()).isEqualTo(expected);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package dev.hvsawal.shortener.repository;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties.Cache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShortUrlIdRangeTest {
+
+    /** Answers the max-leased query with {@code maxLeased}, or fails if it is negative. */
+    private static final class FakeSequence extends JdbcTemplate {
+        final AtomicLong maxLeased = new AtomicLong();
+        final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+            reads.incrementAndGet();
+            if (maxLeased.get() < 0) throw new DataAccessResourceFailureException("down");
+            return (T) Long.valueOf(maxLeased.get());
+        }
+    }
+
+    private static ShortUrlIdRange range(FakeSequence seq) {
+        var cache = new Cache(0, 0, 0, null, new Cache.Negative(0, 0, 60_000), null); // no second refresh during the test
+        return new ShortUrlIdRange(seq, new ShortenerConfigurationProperties(
+                null, null, 0, cache, null, null, null, null, null), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void ids_just_past_a_throttled_bound_go_to_the_db() {
+        var seq = new FakeSequence();
+        seq.maxLeased.set(5_000);
+        var range = range(seq);
+
+        assertThat(range.mayExist(10)).isTrue();
+        assertThat(seq.reads).hasValue(1);
+
+        // Another node leased more blocks; the refresh is throttled, so the bound is stale
+        seq.maxLeased.set(9_000);
+        assertThat(range.mayExist(7_000)).isTrue();
+        assertThat(range.mayExist(5_000 + ShortUrlIdRange.NEAR_SLACK)).isTrue();
+        assertThat(seq.reads).hasValue(1);
+
+        // Far past a fresh bound (random codes) is still rejected without a read
+        assertThat(range.mayExist(5_001 + ShortUrlIdRange.NEAR_SLACK)).isFalse();
+        assertThat(range.mayExist(Long.MAX_VALUE)).isFalse();
+        assertThat(seq.reads).hasValue(1);
+    }
+
+    @Test
+    void the_refreshing_lookup_rejects_anything_past_what_it_read() {
+        var seq = new FakeSequence();
+        seq.maxLeased.set(5_000);
+
+        assertThat(range(seq).mayExist(5_001)).isFalse();
+        assertThat(seq.reads).hasValue(1);
+    }
+
+    @Test
+    void fails_open_when_the_sequence_cant_be_read() {
+        var seq = new FakeSequence();
+        seq.maxLeased.set(-1);
+        var range = range(seq);
+
+        assertThat(range.mayExist(Long.MAX_VALUE)).isTrue();
+        assertThat(range.mayExist(0)).isFalse();
+    }
+}
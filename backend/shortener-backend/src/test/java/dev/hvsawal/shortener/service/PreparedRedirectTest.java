@@ -0,0 +1,43 @@
+package dev.hvsawal.shortener.service;
+
+import dev.hvsawal.shortener.service.ShortUrlService.Resolved;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PreparedRedirectTest {
+
+    @Test
+    void plain_link_carries_only_the_location() {
+        var r = PreparedRedirect.of(new Resolved(1, "https://example.com/a?b=1", false, Long.MAX_VALUE), "link-a");
+
+        assertThat(r.preview()).isFalse();
+        assertThat(r.location()).isEqualTo("https://example.com/a?b=1");
+        assertThat(r.body()).isNull();
+        assertThat(r.etag()).isNull();
+    }
+
+    @Test
+    void preview_body_is_escaped_and_etag_tracks_the_bytes() {
+        var r = PreparedRedirect.of(new Resolved(42, "https://example.com/?q=\"<x>\"&y=1", true, Long.MAX_VALUE), "link-a");
+        String html = new String(r.body(), StandardCharsets.UTF_8);
+
+        assertThat(html).contains("<code>https://example.com/?q=&quot;&lt;x&gt;&quot;&amp;y=1</code>");
+        assertThat(html).doesNotContain("\"<x>\"");
+        assertThat(r.etag()).startsWith("\"").endsWith("\"");
+
+        var same = PreparedRedirect.of(new Resolved(42, "https://example.com/?q=\"<x>\"&y=1", true, 0), "link-a");
+        var other = PreparedRedirect.of(new Resolved(42, "https://example.com/other", true, Long.MAX_VALUE), "link-a");
+        assertThat(same.etag()).isEqualTo(r.etag());
+        assertThat(other.etag()).isNotEqualTo(r.etag());
+    }
+
+    @Test
+    void non_ascii_location_is_percent_encoded() {
+        var r = PreparedRedirect.of(new Resolved(1, "https://example.com/café", false, Long.MAX_VALUE), "link-a");
+
+        assertThat(r.location()).isEqualTo("https://example.com/caf%C3%A9");
+    }
+}
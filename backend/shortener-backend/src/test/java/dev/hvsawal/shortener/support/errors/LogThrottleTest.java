@@ -0,0 +1,30 @@
+package dev.hvsawal.shortener.support.errors;
+
+import dev.hvsawal.shortener.domain.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogThrottleTest {
+
+    @Test
+    void lets_through_up_to_the_limit_per_code_and_counts_the_rest() {
+        var throttle = new LogThrottle(3);
+        long second = System.currentTimeMillis() / 1000;
+
+        int passed = 0;
+        int dropped = 0;
+        for (int i = 0; i < 10; i++) {
+            if (throttle.tryAcquire(ErrorCode.CODE_NOT_FOUND) >= 0) passed++;
+            else dropped++;
+        }
+        // other codes have their own budget
+        assertThat(throttle.tryAcquire(ErrorCode.URL_EXPIRED)).isZero();
+
+        if (System.currentTimeMillis() / 1000 == second) {
+            assertThat(passed).isEqualTo(3);
+            assertThat(dropped).isEqualTo(7);
+        }
+        assertThat(passed + dropped).isEqualTo(10);
+    }
+}
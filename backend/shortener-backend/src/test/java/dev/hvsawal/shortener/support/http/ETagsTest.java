@@ -0,0 +1,19 @@
+package dev.hvsawal.shortener.support.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ETagsTest {
+
+    @Test
+    void tag_is_a_quoted_prefix_and_128_bit_hash_of_the_fields() {
+        String tag = ETags.strong("abc", "https://example.com/a", false, 42L);
+
+        assertThat(tag).matches("\"abc-[A-Za-z0-9_-]{22}\"");
+        assertThat(ETags.strong("abc", "https://example.com/a", false, 42L)).isEqualTo(tag);
+        assertThat(ETags.strong("abc", "https://example.com/b", false, 42L)).isNotEqualTo(tag);
+        // Field boundaries count: ("ab", "c") is not ("a", "bc")
+        assertThat(ETags.strong("p", "ab", "c")).isNotEqualTo(ETags.strong("p", "a", "bc"));
+    }
+}
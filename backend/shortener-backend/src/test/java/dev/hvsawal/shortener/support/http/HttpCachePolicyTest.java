@@ -0,0 +1,41 @@
+package dev.hvsawal.shortener.support.http;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HttpCachePolicyTest {
+
+    private static HttpCachePolicy policy(int status, int maxAge, int sharedMaxAge) {
+        var redirect = new ShortenerConfigurationProperties.Redirect(status, maxAge, sharedMaxAge, "Surrogate-Key");
+        return new HttpCachePolicy(new ShortenerConfigurationProperties(
+                null, null, 0, null, null, null, null, null, redirect));
+    }
+
+    @Test
+    void max_age_is_capped_by_remaining_lifetime() {
+        var p = policy(301, 300, 86_400);
+        long now = System.currentTimeMillis();
+
+        assertThat(p.cacheControl(now + 10L * 86_400_000)).isEqualTo("public, max-age=300, s-maxage=86400");
+        assertThat(p.cacheControl(now + 3_600_500)).isEqualTo("public, max-age=300, s-maxage=3600");
+        assertThat(p.cacheControl(now + 60_500)).isEqualTo("public, max-age=60");
+        assertThat(p.cacheControl(now - 1_000)).isEqualTo("no-cache");
+    }
+
+    @Test
+    void caching_off_sends_nothing_for_temporary_and_no_cache_for_permanent_redirects() {
+        long later = System.currentTimeMillis() + 86_400_000;
+
+        assertThat(policy(302, 0, 0).cacheControl(later)).isNull();
+        assertThat(policy(307, 0, 0).cacheControl(later)).isNull();
+        assertThat(policy(308, 0, 0).cacheControl(later)).isEqualTo("no-cache");
+    }
+
+    @Test
+    void rejects_non_redirect_status() {
+        assertThatThrownBy(() -> policy(303, 0, 0)).isInstanceOf(IllegalStateException.class);
+    }
+}
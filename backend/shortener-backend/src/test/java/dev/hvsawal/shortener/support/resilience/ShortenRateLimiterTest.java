@@ -0,0 +1,83 @@
+package dev.hvsawal.shortener.support.resilience;
+
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties;
+import dev.hvsawal.shortener.configuration.ShortenerConfigurationProperties.Ratelimit;
+import dev.hvsawal.shortener.support.errors.InvalidRequestException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShortenRateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private static ShortenRateLimiter limiter(int globalPerMinute, int globalBurst,
+                                              int clientPerMinute, int clientBurst, String apiKeyHeader) {
+        var ratelimit = new Ratelimit(globalPerMinute, globalBurst,
+                new Ratelimit.PerClient(true, clientPerMinute, clientBurst, 100, apiKeyHeader));
+        return new ShortenRateLimiter(new ShortenerConfigurationProperties(
+                null, null, 0, null, null, ratelimit, null, null, null), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void clients_have_separate_buckets_under_the_global_cap() {
+        var rl = limiter(1, 10, 1, 3, null); // refill negligible during the test
+        long now = System.nanoTime();
+
+        assertThat(rl.tryAcquire("ip:a", 3, now)).isZero();
+        assertThat(rl.tryAcquire("ip:a", 1, now)).isPositive();
+        assertThat(rl.tryAcquire("ip:b", 3, now)).isZero();
+        assertThat(rl.tryAcquire("ip:c", 3, now)).isZero();
+        // c still has tokens, the global bucket (10) has one left
+        assertThat(rl.tryAcquire("ip:d", 2, now)).isPositive();
+        assertThat(rl.tryAcquire("ip:d", 1, now)).isZero();
+    }
+
+    @Test
+    void global_refusal_gives_the_client_its_tokens_back() {
+        var rl = limiter(60, 2, 1, 3, null); // global refills one per second, client effectively never
+        long now = System.nanoTime();
+
+        assertThat(rl.tryAcquire("ip:a", 2, now)).isZero();
+        assertThat(rl.tryAcquire("ip:a", 1, now)).isEqualTo(1); // global is empty for a second
+
+        // Had the client been charged for the refused request, it would have nothing left now
+        assertThat(rl.tryAcquire("ip:a", 1, now + SECOND)).isZero();
+        assertThat(rl.tryAcquire("ip:a", 1, now + 3 * SECOND)).isPositive();
+    }
+
+    @Test
+    void requests_larger_than_any_burst_are_invalid_not_retryable() {
+        var rl = limiter(240, 240, 60, 120, null);
+        assertThat(rl.maxPermits()).isEqualTo(120);
+
+        assertThat(rl.tryAcquire("ip:a", 120, System.nanoTime())).isZero();
+        assertThatThrownBy(() -> rl.tryAcquire("ip:b", 121, System.nanoTime()))
+                .isInstanceOf(InvalidRequestException.class)
+                .hasMessageContaining("120");
+
+        assertThat(limiter(240, 50, 60, 120, null).maxPermits()).isEqualTo(50);
+    }
+
+    @Test
+    void client_key_is_the_remote_address_unless_an_api_key_header_is_configured() {
+        var request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.7");
+        request.addHeader("X-Api-Key", "  k-123 ");
+
+        assertThat(limiter(60, 60, 60, 60, null).clientKey(request)).isEqualTo("ip:10.0.0.7");
+        assertThat(limiter(60, 60, 60, 60, "X-Api-Key").clientKey(request)).isEqualTo("key:k-123");
+
+        var noKey = new MockHttpServletRequest();
+        noKey.setRemoteAddr("10.0.0.8");
+        assertThat(limiter(60, 60, 60, 60, "X-Api-Key").clientKey(noKey)).isEqualTo("ip:10.0.0.8");
+
+        var longKey = new MockHttpServletRequest();
+        longKey.setRemoteAddr("10.0.0.9");
+        longKey.addHeader("X-Api-Key", "k".repeat(129));
+        assertThat(limiter(60, 60, 60, 60, "X-Api-Key").clientKey(longKey)).isEqualTo("ip:10.0.0.9");
+    }
+}
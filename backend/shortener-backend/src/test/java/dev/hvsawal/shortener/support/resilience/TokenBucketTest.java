@@ -0,0 +1,87 @@
+package dev.hvsawal.shortener.support.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void burst_then_continuous_refill() {
+        long t0 = 5 * SECOND;
+        var bucket = new TokenBucket(60, 3, t0); // one token per second, three at most
+
+        assertThat(bucket.tryAcquire(1, t0)).isZero();
+        assertThat(bucket.tryAcquire(1, t0)).isZero();
+        assertThat(bucket.tryAcquire(1, t0)).isZero();
+        assertThat(bucket.tryAcquire(1, t0)).isEqualTo(SECOND);
+
+        // Half a token refilled is not enough; a whole one is
+        assertThat(bucket.tryAcquire(1, t0 + SECOND / 2)).isEqualTo(SECOND / 2);
+        assertThat(bucket.tryAcquire(1, t0 + SECOND)).isZero();
+
+        // Idle time refills up to the burst, never beyond
+        long later = t0 + 60 * SECOND;
+        for (int i = 0; i < 3; i++) assertThat(bucket.tryAcquire(1, later)).isZero();
+        assertThat(bucket.tryAcquire(1, later)).isPositive();
+    }
+
+    @Test
+    void multi_token_requests_are_all_or_nothing() {
+        var bucket = new TokenBucket(60, 5, 0);
+
+        assertThat(bucket.tryAcquire(4, 0)).isZero();
+        assertThat(bucket.tryAcquire(2, 0)).isEqualTo(SECOND); // one short: nothing taken
+        assertThat(bucket.tryAcquire(1, 0)).isZero();
+        assertThat(bucket.tryAcquire(6, 100 * SECOND)).isPositive(); // above the burst: never
+    }
+
+    @Test
+    void release_gives_tokens_back() {
+        var bucket = new TokenBucket(60, 2, 0);
+
+        assertThat(bucket.tryAcquire(2, 0)).isZero();
+        bucket.release(1);
+        assertThat(bucket.tryAcquire(1, 0)).isZero();
+        assertThat(bucket.tryAcquire(1, 0)).isPositive();
+    }
+
+    @Test
+    void works_across_nano_time_overflow() {
+        long t0 = Long.MAX_VALUE - SECOND / 2;
+        var bucket = new TokenBucket(60, 1, t0);
+
+        assertThat(bucket.tryAcquire(1, t0)).isZero();
+        assertThat(bucket.tryAcquire(1, t0 + SECOND / 4)).isPositive();
+        assertThat(bucket.tryAcquire(1, t0 + SECOND)).isZero();
+    }
+
+    @Test
+    void concurrent_callers_never_exceed_the_burst() throws InterruptedException {
+        var bucket = new TokenBucket(1, 1_000, 0); // refill negligible during the test
+        var admitted = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1_000; i++) {
+                    if (bucket.tryAcquire(1, 0) == 0) admitted.incrementAndGet();
+                }
+            });
+        }
+        start.countDown();
+        for (Thread t : threads) t.join();
+
+        assertThat(admitted.get()).isEqualTo(1_000);
+    }
+}
@@ -0,0 +1,50 @@
+#!/usr/bin/env bash
+# Runs the JMH microbenchmarks (codec + URL pipeline) and records them next to the k6 results:
+#   perf/results/jmh/raw/<runId>.json   full JMH output
+#   perf/results/jmh/latest.json        normalized summary of this run
+#   perf/results/jmh/history.json       last 60 summaries
+#
+# Usage: perf/jmh.sh [benchmark regex]            e.g. perf/jmh.sh CodecBenchmark
+#        JMH_OPTS="-f 1 -i 3" perf/jmh.sh         override fork/warmup/iteration settings
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+BACKEND="$ROOT/backend/shortener-backend"
+OUT="$ROOT/perf/results/jmh"
+RUN_ID="$(date -u +%Y%m%dT%H%M%SZ)"
+RAW="$OUT/raw/$RUN_ID.json"
+
+mkdir -p "$OUT/raw"
+
+JMH_OPTS="${JMH_OPTS:--f 1 -wi 3 -w 1s -i 5 -r 1s}"
+JMH_ARGS="${*:-} $JMH_OPTS -prof gc -rf json -rff $RAW"
+(cd "$BACKEND" && sh ./mvnw -B -q -Pjmh test-compile exec:exec -Djmh.args="$JMH_ARGS")
+
+LATEST=$(jq -c --arg runId "$RUN_ID" --arg generatedAt "$(date -u +%Y-%m-%dT%H:%M:%SZ)" '
+  {
+    runId: $runId,
+    generatedAt: $generatedAt,
+    jdk: (.[0].jdkVersion // null),
+    benchmarks: [ .[] | {
+      name: (.benchmark | split(".") | .[-2:] | join(".")),
+      mode: .mode,
+      score: .primaryMetric.score,
+      error: .primaryMetric.scoreError,
+      unit: .primaryMetric.scoreUnit,
+      allocBytesPerOp: (.secondaryMetrics["gc.alloc.rate.norm"].score // null)
+    } ]
+  }
+' "$RAW")
+
+echo "$LATEST" | jq . > "$OUT/latest.json"
+
+if [ -f "$OUT/history.json" ]; then
+  jq --argjson latest "$LATEST" '
+    . + [$latest] | (if length > 60 then .[-60:] else . end)
+  ' "$OUT/history.json" > "$OUT/history.tmp.json"
+  mv "$OUT/history.tmp.json" "$OUT/history.json"
+else
+  jq -n --argjson latest "$LATEST" '[ $latest ]' > "$OUT/history.json"
+fi
+
+echo "JMH results: $OUT/latest.json"